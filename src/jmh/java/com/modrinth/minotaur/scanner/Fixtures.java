@@ -0,0 +1,190 @@
+package com.modrinth.minotaur.scanner;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates the synthetic jars the benchmarks scan. Everything is derived from a fixed seed, so every run scans the
+ * same bytes.
+ */
+public final class Fixtures {
+	/**
+	 * The kinds of jar worth benchmarking separately.
+	 */
+	public enum Kind {
+		/**
+		 * A typical mod: a couple hundred small classes.
+		 */
+		SMALL_MOD(300, 0, 0),
+		/**
+		 * A server jar with all of its libraries shaded in.
+		 */
+		SHADED_SERVER(50_000, 0, 0),
+		/**
+		 * Generated code with methods close to the 64 KiB limit, all of which pass the constant pool prefilter.
+		 */
+		HUGE_METHODS(40, 0, 0),
+		/**
+		 * A mod bundling its libraries as jar-in-jar, two levels deep.
+		 */
+		NESTED_JARS(100, 20, 500);
+
+		final int classes;
+		final int nestedJars;
+		final int nestedClasses;
+
+		Kind(int classes, int nestedJars, int nestedClasses) {
+			this.classes = classes;
+			this.nestedJars = nestedJars;
+			this.nestedClasses = nestedClasses;
+		}
+
+		/**
+		 * @return how many classes a scan of this kind of jar looks at
+		 */
+		int totalClasses() {
+			// Every nested jar holds a second level jar of the same size
+			return classes + nestedJars * nestedClasses * 2;
+		}
+	}
+
+	private Fixtures() {
+	}
+
+	/**
+	 * @param kind the kind of jar
+	 * @return a freshly written jar, deleted when the JVM exits
+	 * @throws IOException if the jar could not be written
+	 */
+	static File jar(Kind kind) throws IOException {
+		File file = Files.createTempFile("minotaur-" + kind.name().toLowerCase() + "-", ".jar").toFile();
+		file.deleteOnExit();
+		Random random = new Random(kind.ordinal());
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			writeJar(out, kind, "p", random, 2);
+		}
+		return file;
+	}
+
+	/**
+	 * @param kind  the kind of classes
+	 * @param count how many classes to generate
+	 * @return class files as produced by the jar of that kind
+	 */
+	static List<byte[]> classes(Kind kind, int count) {
+		Random random = new Random(kind.ordinal());
+		List<byte[]> classes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			classes.add(kind == Kind.HUGE_METHODS ? hugeClass("p/Huge" + i, random) : smallClass("p/C" + i, random));
+		}
+		return classes;
+	}
+
+	private static void writeJar(OutputStream out, Kind kind, String prefix, Random random, int nesting) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(out);
+		int classes = nesting == 2 ? kind.classes : kind.nestedClasses;
+		for (int i = 0; i < classes; i++) {
+			String name = prefix + "/C" + i;
+			zip.putNextEntry(new ZipEntry(name + ".class"));
+			zip.write(kind == Kind.HUGE_METHODS ? hugeClass(name, random) : smallClass(name, random));
+			zip.closeEntry();
+		}
+		if (nesting > 0 && kind.nestedJars > 0) {
+			for (int i = 0, jars = nesting == 2 ? kind.nestedJars : 1; i < jars; i++) {
+				zip.putNextEntry(new ZipEntry("META-INF/jars/lib" + i + ".jar"));
+				ByteArrayOutputStream nested = new ByteArrayOutputStream();
+				writeJar(nested, kind, prefix + "/lib" + i, random, nesting - 1);
+				nested.writeTo(zip);
+				zip.closeEntry();
+			}
+		}
+		zip.finish();
+	}
+
+	/**
+	 * A class with a handful of ordinary methods. One method in twenty also fills a byte array starting the way the IP
+	 * signature does, so the prefilter lets its class through and the scanner has to parse it fully.
+	 */
+	private static byte[] smallClass(String name, Random random) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", null);
+		cw.visitField(ACC_PRIVATE, "value", "Ljava/lang/String;", null, null).visitEnd();
+		for (int m = 0, methods = 3 + random.nextInt(8); m < methods; m++) {
+			MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "method" + m, "(I)Ljava/lang/String;", null, null);
+			mv.visitCode();
+			Label loop = new Label();
+			mv.visitLabel(loop);
+			for (int i = 0, insns = 5 + random.nextInt(40); i < insns; i++) {
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitFieldInsn(GETFIELD, name, "value", "Ljava/lang/String;");
+				mv.visitLdcInsn("constant" + random.nextInt(1000));
+				mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "concat", "(Ljava/lang/String;)Ljava/lang/String;", false);
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitInsn(SWAP);
+				mv.visitFieldInsn(PUTFIELD, name, "value", "Ljava/lang/String;");
+			}
+			if (random.nextInt(20) == 0) {
+				byteArray(mv, 16, random);
+				mv.visitInsn(POP);
+			}
+			mv.visitVarInsn(ILOAD, 1);
+			mv.visitJumpInsn(IFNE, loop);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, name, "value", "Ljava/lang/String;");
+			mv.visitInsn(ARETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * A class with one method filling a large byte array, the worst case for the contiguous IP signature. Like the
+	 * malware's array it starts with {@code 56}, so the prefilter never skips it.
+	 */
+	private static byte[] hugeClass(String name, Random random) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", null);
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "data", "()[B", null, null);
+		mv.visitCode();
+		// At most seven bytes per element, so this stays just under the 64 KiB method size limit
+		byteArray(mv, 9_000, random);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Pushes a byte array initialized the way javac compiles an array literal, starting with {@code 56}.
+	 */
+	private static void byteArray(MethodVisitor mv, int length, Random random) {
+		mv.visitIntInsn(SIPUSH, length);
+		mv.visitIntInsn(NEWARRAY, T_BYTE);
+		for (int i = 0; i < length; i++) {
+			mv.visitInsn(DUP);
+			if (i <= 5) {
+				mv.visitInsn(ICONST_0 + i);
+			} else if (i < 128) {
+				mv.visitIntInsn(BIPUSH, i);
+			} else {
+				mv.visitIntInsn(SIPUSH, i);
+			}
+			mv.visitIntInsn(BIPUSH, i == 0 ? 56 : 32 + random.nextInt(96));
+			mv.visitInsn(BASTORE);
+		}
+	}
+}
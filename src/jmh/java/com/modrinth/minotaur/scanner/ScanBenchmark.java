@@ -0,0 +1,62 @@
+package com.modrinth.minotaur.scanner;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans whole jars, the way the {@code modrinthScan} task does with caching disabled. The {@code classes} counter
+ * reports classes per second on top of the jars per second measured by JMH itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScanBenchmark {
+	private static final Logger LOGGER = Logging.getLogger(ScanBenchmark.class);
+
+	@Param({"SMALL_MOD", "SHADED_SERVER", "HUGE_METHODS", "NESTED_JARS"})
+	public Fixtures.Kind kind;
+
+	@Param({"1", "4"})
+	public int parallelism;
+
+	private File jar;
+	private ScanOptions options;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		jar = Fixtures.jar(kind);
+		options = new ScanOptions().parallelism(parallelism);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		//noinspection ResultOfMethodCallIgnored
+		jar.delete();
+	}
+
+	@Benchmark
+	public boolean scan(ClassCounter counter) throws IOException {
+		boolean infected = JarInfectionScanner.scan(LOGGER, jar, options);
+		counter.classes += kind.totalClasses();
+		return infected;
+	}
+
+	/**
+	 * Counts the classes scanned, which JMH reports as a rate next to the primary result.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ClassCounter {
+		public long classes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			classes = 0;
+		}
+	}
+}
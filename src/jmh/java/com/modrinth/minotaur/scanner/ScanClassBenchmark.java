@@ -0,0 +1,36 @@
+package com.modrinth.minotaur.scanner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans individual classes which are already in memory, leaving out decompression and zip handling. Every operation
+ * is one class, so the score is classes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ScanClassBenchmark.CLASSES)
+public class ScanClassBenchmark {
+	static final int CLASSES = 100;
+
+	@Param({"SMALL_MOD", "HUGE_METHODS"})
+	public Fixtures.Kind kind;
+
+	private List<byte[]> classes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		classes = Fixtures.classes(kind, CLASSES);
+	}
+
+	@Benchmark
+	public void scanClass(Blackhole blackhole) {
+		for (byte[] clazz : classes) {
+			blackhole.consume(JarInfectionScanner.scanClass(clazz));
+		}
+	}
+}
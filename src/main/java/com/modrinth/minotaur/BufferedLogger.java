@@ -0,0 +1,65 @@
+package com.modrinth.minotaur;
+
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back everything logged through a {@link Logger} until {@link #replay()} is called, so the output of work
+ * running in parallel can be printed in a fixed order.
+ */
+@ApiStatus.Internal
+class BufferedLogger {
+	private final Logger target;
+	private final List<Object[]> calls = new ArrayList<>();
+	private final Logger logger;
+
+	BufferedLogger(Logger target) {
+		this.target = target;
+		this.logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] {Logger.class},
+			(proxy, method, args) -> {
+				// Queries like isInfoEnabled() need an answer right away, only logging itself is held back
+				if (method.getReturnType() != void.class) {
+					return invoke(method, args);
+				}
+				synchronized (calls) {
+					calls.add(new Object[] {method, args});
+				}
+				return null;
+			});
+	}
+
+	/**
+	 * @return the logger to hand to the work running in parallel
+	 */
+	Logger getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Logs everything held back so far to the real logger.
+	 */
+	void replay() {
+		synchronized (calls) {
+			for (Object[] call : calls) {
+				invoke((Method) call[0], (Object[]) call[1]);
+			}
+			calls.clear();
+		}
+	}
+
+	private Object invoke(Method method, Object[] args) {
+		try {
+			return method.invoke(target, args);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.modrinth.minotaur;
+
+import com.modrinth.minotaur.scanner.JarInfectionScanner;
+import com.modrinth.minotaur.scanner.ScanCache;
+import com.modrinth.minotaur.scanner.ScanLogger;
+import com.modrinth.minotaur.scanner.ScanOptions;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.ZipException;
+
+/**
+ * Scans the resolved artifacts of dependencies, since malware may just as well be shaded or bundled into the upload
+ * from one of them. Artifacts are scanned several at once, each on a single thread.
+ * <p>
+ * Verdicts are cached in the Gradle user home by module coordinate and the SHA-256 of the artifact, so every version of
+ * a dependency is scanned only once per machine. The artifact is always hashed, even where Gradle's module cache names
+ * its directory after the SHA-1, since a jar modified in place keeps its directory name.
+ */
+@ApiStatus.Internal
+class DependencyScanner {
+	private static final Pattern UNSAFE = Pattern.compile("[^A-Za-z0-9._-]");
+
+	private final ScanOptions options;
+	private final boolean cached;
+	private final int parallelism;
+
+	/**
+	 * @param options     how to scan each artifact
+	 * @param cached      whether the options carry a cache, which is the only reason to work out checksums
+	 * @param parallelism how many artifacts to scan at once
+	 */
+	DependencyScanner(ScanOptions options, boolean cached, int parallelism) {
+		this.options = options;
+		this.cached = cached;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Scans every artifact, skipping directories and any artifact which is not a jar. Artifacts resolved for several
+	 * configurations are scanned once.
+	 *
+	 * @param logger    logger to report the results to
+	 * @param artifacts the resolved artifacts
+	 * @return the coordinates of the infected artifacts
+	 * @throws InterruptedException if interrupted while waiting for the scans
+	 */
+	List<String> scan(ScanLogger logger, Collection<ResolvedArtifactResult> artifacts) throws InterruptedException {
+		Map<File, ResolvedArtifactResult> unique = new LinkedHashMap<>();
+		for (ResolvedArtifactResult artifact : artifacts) {
+			if (artifact.getFile().isFile()) {
+				unique.putIfAbsent(artifact.getFile(), artifact);
+			}
+		}
+		if (unique.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, unique.size())));
+		Map<ResolvedArtifactResult, Future<Boolean>> futures = new LinkedHashMap<>();
+		for (ResolvedArtifactResult artifact : unique.values()) {
+			futures.put(artifact, pool.submit(() -> scan(logger, artifact)));
+		}
+
+		List<String> infected = new ArrayList<>();
+		try {
+			for (Map.Entry<ResolvedArtifactResult, Future<Boolean>> entry : futures.entrySet()) {
+				String coordinate = coordinate(entry.getKey());
+				try {
+					if (entry.getValue().get()) {
+						infected.add(coordinate);
+					}
+				} catch (ExecutionException e) {
+					throw new GradleException(String.format("Failed to scan dependency %s", coordinate), e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		logger.info("Scanned {} dependency artifacts", unique.size());
+		return infected;
+	}
+
+	private boolean scan(ScanLogger logger, ResolvedArtifactResult artifact) throws IOException {
+		File file = artifact.getFile();
+		try {
+			return JarInfectionScanner.scan(logger, file, options,
+				cached ? contentKey(artifact) : "");
+		} catch (ZipException e) {
+			logger.debug("Not scanning {}, it is not a jar", file.getName());
+			return false;
+		}
+	}
+
+	/**
+	 * @return the artifact's module coordinate, like {@code com.example:library:1.0}, or a description of the
+	 * component it belongs to if it does not come from a repository
+	 */
+	static String coordinate(ResolvedArtifactResult artifact) {
+		ComponentIdentifier id = artifact.getId().getComponentIdentifier();
+		if (id instanceof ModuleComponentIdentifier) {
+			ModuleComponentIdentifier module = (ModuleComponentIdentifier) id;
+			return module.getGroup() + ":" + module.getModule() + ":" + module.getVersion();
+		}
+		return id.getDisplayName();
+	}
+
+	/**
+	 * Keys the verdict by coordinate and the SHA-256 of the artifact's contents.
+	 */
+	private static String contentKey(ResolvedArtifactResult artifact) throws IOException {
+		// The key becomes a file name
+		return UNSAFE.matcher(coordinate(artifact)).replaceAll("_") + "-" + ScanCache.sha256(artifact.getFile());
+	}
+}
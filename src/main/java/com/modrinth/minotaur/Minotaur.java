@@ -1,33 +1,84 @@
 package com.modrinth.minotaur;
 
+import com.modrinth.minotaur.dependencies.DependencyLock;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.modrinth.minotaur.Util.ext;
+import static com.modrinth.minotaur.Util.resolveFile;
 
 /**
  * The main class for Minotaur.
  */
 public class Minotaur implements Plugin<Project> {
 	/**
-	 * Creates the {@link ModrinthExtension} for the project and registers the {@code modrinth} and
-	 * {@code modrinthSyncBody} tasks.
+	 * Creates the {@link ModrinthExtension} for the project and registers the {@code modrinth},
+	 * {@code modrinthScan}, {@code modrinthSyncBody} and {@code modrinthLockDependencies} tasks.
 	 *
 	 * @param project The Gradle project which Minotaur is applied to
 	 */
 	@Override
 	public void apply(final Project project) {
-		project.getExtensions().create("modrinth", ModrinthExtension.class, project);
+		ModrinthExtension extension = project.getExtensions().create("modrinth", ModrinthExtension.class, project);
 		project.getLogger().debug("Created the `modrinth` extension.");
 
+		Provider<ScanResultsService> scanResults = project.getGradle().getSharedServices()
+			.registerIfAbsent("modrinthScanResults", ScanResultsService.class, spec -> {
+			});
+		Provider<ModrinthApiService> apiService = project.getGradle().getSharedServices()
+			.registerIfAbsent("modrinthApi", ModrinthApiService.class, spec -> {
+			});
+
 		TaskContainer tasks = project.getTasks();
+		TaskProvider<TaskModrinthScan> scan = tasks.register("modrinthScan", TaskModrinthScan.class, task -> {
+			task.setGroup("verification");
+			task.setDescription("Scan the files to upload to Modrinth for malware");
+			task.getFiles().from(project.provider(() -> {
+				// Resolved the same way as the upload task does
+				List<File> files = new ArrayList<>();
+				files.add(extension.getFile().get().getAsFile());
+				extension.getAdditionalFiles().get().forEach(file -> {
+					File resolvedFile = resolveFile(project, file);
+					if (resolvedFile != null) {
+						files.add(resolvedFile);
+					}
+				});
+				return files;
+			}));
+			task.getRules().set(extension.getScanRules());
+			task.getCleanClassHashes().set(extension.getCleanClassHashes());
+			task.getNestedJarDepth().set(extension.getNestedJarDepth());
+			task.getNestedJarMaxSize().set(extension.getNestedJarMaxSize());
+			task.getParallelism().set(extension.getScanParallelism());
+			task.getScanCache().set(extension.getScanCache());
+			task.getScanCacheSize().set(extension.getScanCacheSize());
+			task.getScanResults().set(scanResults);
+			task.usesService(scanResults);
+			task.getReport().set(project.getLayout().getBuildDirectory().file("reports/minotaur/scan.json"));
+			task.getSarifReport().set(project.getLayout().getBuildDirectory().file("reports/minotaur/scan.sarif"));
+		});
+		project.getLogger().debug("Registered the `modrinthScan` task.");
+
 		tasks.register("modrinth", TaskModrinthUpload.class, task -> {
 			task.setGroup("publishing");
 			task.setDescription("Upload project to Modrinth");
 			task.dependsOn(tasks.named("assemble"));
+			task.dependsOn(scan);
+			task.getScanReport().set(scan.flatMap(TaskModrinthScan::getReport));
+			task.getLockFile().set(project.getLayout().getProjectDirectory().file(DependencyLock.FILE_NAME));
+			task.getApiService().set(apiService);
+			task.usesService(apiService);
 			task.mustRunAfter(tasks.named("build"));
 		});
 		project.getLogger().debug("Registered the `modrinth` task.");
@@ -35,16 +86,57 @@ public class Minotaur implements Plugin<Project> {
 		tasks.register("modrinthSyncBody", TaskModrinthSyncBody.class, task -> {
 			task.setGroup("publishing");
 			task.setDescription("Sync project description to Modrinth");
+			task.getApiService().set(apiService);
+			task.usesService(apiService);
 		});
 		project.getLogger().debug("Registered the `modrinthSyncBody` task.");
 
+		tasks.register("modrinthLockDependencies", TaskModrinthLockDependencies.class, task -> {
+			task.setGroup("publishing");
+			task.setDescription("Lock the Modrinth dependencies to their project and version IDs");
+			task.getLockFile().set(project.getLayout().getProjectDirectory().file(DependencyLock.FILE_NAME));
+			task.getApiService().set(apiService);
+			task.usesService(apiService);
+		});
+		project.getLogger().debug("Registered the `modrinthLockDependencies` task.");
+
 		project.afterEvaluate(evaluatedProject -> {
 			ModrinthExtension ext = ext(evaluatedProject);
 
+			List<String> scanConfigurations = ext.getScanConfigurations().get();
+			if (!scanConfigurations.isEmpty()) {
+				evaluatedProject.getTasks().named("modrinthScan", TaskModrinthScan.class).configure(task -> {
+					for (String name : scanConfigurations) {
+						Configuration configuration = evaluatedProject.getConfigurations().findByName(name);
+						if (configuration == null) {
+							throw new GradleException(String.format("Cannot scan configuration '%s', it does not exist", name));
+						}
+						// Resolved lazily, and carrying the tasks which build any project dependencies
+						ArtifactCollection artifacts = configuration.getIncoming().getArtifacts();
+						task.getDependencyFiles().from(artifacts.getArtifactFiles());
+						task.getDependencyArtifacts().addAll(artifacts.getResolvedArtifacts());
+					}
+					evaluatedProject.getLogger().debug("Made the `modrinthScan` task scan the artifacts of {}.", scanConfigurations);
+				});
+			}
+
 			if (!ext.getAutoAddDependsOn().getOrElse(true)) {
 				return;
 			}
 
+			evaluatedProject.getTasks().named("modrinthScan", TaskModrinthScan.class).configure(task -> {
+				task.dependsOn(ext.getFile());
+				ext.getAdditionalFiles().get().forEach(file -> {
+					if (file instanceof AbstractArchiveTask) {
+						task.dependsOn(file);
+					} else if (file instanceof TaskProvider<?> &&
+						((TaskProvider<?>) file).get() instanceof AbstractArchiveTask) {
+						task.dependsOn(((TaskProvider<?>) file).get());
+					}
+				});
+				evaluatedProject.getLogger().debug("Made the `modrinthScan` task depend on the upload file and additional files.");
+			});
+
 			evaluatedProject.getTasks().named("modrinth", TaskModrinthUpload.class).configure(task -> {
 				task.getWiredInputFiles().from(ext.getFile());
 				task.getInputs().property("changelog", ext.getChangelog()).optional(true);
@@ -0,0 +1,153 @@
+package com.modrinth.minotaur;
+
+import masecla.modrinth4j.main.ModrinthAPI;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hands out one {@link ModrinthAPI} client per API URL and token to the tasks of every project in the build, so they
+ * reuse the same connections and share one rate limit budget instead of each running into the limit on its own.
+ * Requests Modrinth4J cannot make, like streaming a multipart upload, are sent through the service as well, and wait
+ * for the rate limit Modrinth reports for the same URL and token. Gradle closes the service, and with it the clients,
+ * once the build is finished.
+ */
+@ApiStatus.Internal
+public abstract class ModrinthApiService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+	private static final Logger LOGGER = Logging.getLogger(ModrinthApiService.class);
+
+	private final Map<String, ModrinthAPI> clients = new ConcurrentHashMap<>();
+	private final Map<String, RateLimit> limits = new ConcurrentHashMap<>();
+
+	/**
+	 * @param url    the API URL, without a trailing slash
+	 * @param token  the token to authenticate with
+	 * @param create creates the client if there is none for the URL and token yet
+	 * @return the client shared by every task using the same URL and token
+	 */
+	ModrinthAPI get(String url, String token, Supplier<ModrinthAPI> create) {
+		// The URL cannot contain a line break, so the key is unambiguous
+		return clients.computeIfAbsent(url + "\n" + token, key -> create.get());
+	}
+
+	/**
+	 * Sends a request which Modrinth4J cannot make. If Modrinth said the rate limit is used up, this waits for it to
+	 * reset first.
+	 *
+	 * @param url       the API URL, without a trailing slash
+	 * @param token     the token to authenticate with
+	 * @param userAgent the user agent to send
+	 * @param path      the route to send the request to, starting with a slash
+	 * @param request   sends the request on a connection which has the headers above set, and reads the response,
+	 *                  throwing a {@link GradleException} for an error status
+	 * @param <T>       the type of the response
+	 * @return the response
+	 * @throws IOException if the request fails
+	 */
+	<T> T send(String url, String token, String userAgent, String path, Request<T> request) throws IOException {
+		RateLimit limit = limits.computeIfAbsent(url + "\n" + token, key -> new RateLimit());
+		limit.acquire();
+		HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+		boolean responded = false;
+		try {
+			connection.setRequestProperty("Authorization", token);
+			connection.setRequestProperty("User-Agent", userAgent);
+			T response = request.send(connection);
+			responded = true;
+			return response;
+		} catch (GradleException e) {
+			// Thrown for error statuses, which still tell how much of the rate limit is left
+			responded = true;
+			throw e;
+		} finally {
+			// Asking a connection which failed to send for its headers would send it again
+			if (responded) {
+				limit.update(connection);
+			}
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * A request sent by {@link #send(String, String, String, String, Request)}.
+	 *
+	 * @param <T> the type of the response
+	 */
+	interface Request<T> {
+		/**
+		 * @param connection the connection to send the request on
+		 * @return the response
+		 * @throws IOException if the request fails
+		 */
+		T send(HttpURLConnection connection) throws IOException;
+	}
+
+	@Override
+	public void close() {
+		for (ModrinthAPI client : clients.values()) {
+			// Not every client can be closed, those which cannot release their connections once collected
+			Object closeable = client;
+			if (closeable instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) closeable).close();
+				} catch (Exception e) {
+					LOGGER.debug("Failed to close the Modrinth API client", e);
+				}
+			}
+		}
+		clients.clear();
+		limits.clear();
+	}
+
+	/**
+	 * What is left of the rate limit, as told by the headers of the last response.
+	 */
+	private static final class RateLimit {
+		private int remaining = Integer.MAX_VALUE;
+		private long resetAt = 0;
+
+		synchronized void acquire() throws InterruptedIOException {
+			while (remaining <= 0) {
+				long wait = TimeUnit.NANOSECONDS.toMillis(resetAt - System.nanoTime());
+				if (wait <= 0) {
+					remaining = Integer.MAX_VALUE;
+					break;
+				}
+				LOGGER.info("Modrinth's rate limit is used up, waiting {} ms for it to reset", wait);
+				try {
+					wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for Modrinth's rate limit");
+				}
+			}
+			remaining--;
+		}
+
+		synchronized void update(HttpURLConnection connection) {
+			String remaining = connection.getHeaderField("X-Ratelimit-Remaining");
+			String reset = connection.getHeaderField("X-Ratelimit-Reset");
+			if (remaining == null || reset == null) {
+				return;
+			}
+			try {
+				this.remaining = Integer.parseInt(remaining.trim());
+				this.resetAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(reset.trim()));
+			} catch (NumberFormatException e) {
+				LOGGER.debug("Ignoring invalid rate limit headers {} and {}", remaining, reset);
+			}
+		}
+	}
+}
@@ -15,11 +15,14 @@ import org.gradle.api.provider.Property;
 public class ModrinthExtension extends DependencyDSL {
 	private final Property<String> apiUrl, token, projectId, versionNumber, versionName, changelog, versionType, syncBodyFrom;
 	private final Property<Object> legacyUploadFile;
-	private final RegularFileProperty file;
+	private final RegularFileProperty file, scanRules, cleanClassHashes;
 	private final ListProperty<Object> additionalFiles;
 	public final ListProperty<String> gameVersions, loaders;
+	private final ListProperty<String> scanConfigurations;
 	private final ListProperty<Dependency> dependencies;
-	private final Property<Boolean> failSilently, detectLoaders, debugMode, autoAddDependsOn;
+	private final Property<Boolean> failSilently, detectLoaders, loadersFromFile, debugMode, autoAddDependsOn, scanCache;
+	private final Property<Integer> scanParallelism, scanCacheSize, nestedJarDepth, lookupCacheHours;
+	private final Property<Long> nestedJarMaxSize;
 
 	/**
 	 * The default API URL in use for uploading. Exposed as a fallback utility.
@@ -63,9 +66,19 @@ public class ModrinthExtension extends DependencyDSL {
 		dependencies = project.getObjects().listProperty(Dependency.class).empty();
 		failSilently = project.getObjects().property(Boolean.class).convention(false);
 		detectLoaders = project.getObjects().property(Boolean.class).convention(true);
+		loadersFromFile = project.getObjects().property(Boolean.class).convention(false);
 		debugMode = project.getObjects().property(Boolean.class).convention(false);
 		syncBodyFrom = project.getObjects().property(String.class);
 		autoAddDependsOn = project.getObjects().property(Boolean.class).convention(true);
+		scanParallelism = project.getObjects().property(Integer.class).convention(Runtime.getRuntime().availableProcessors());
+		scanCache = project.getObjects().property(Boolean.class).convention(true);
+		scanCacheSize = project.getObjects().property(Integer.class).convention(1000);
+		nestedJarDepth = project.getObjects().property(Integer.class).convention(3);
+		nestedJarMaxSize = project.getObjects().property(Long.class).convention(64L * 1024 * 1024);
+		scanRules = project.getObjects().fileProperty();
+		cleanClassHashes = project.getObjects().fileProperty();
+		scanConfigurations = project.getObjects().listProperty(String.class).empty();
+		lookupCacheHours = project.getObjects().property(Integer.class).convention(24);
 	}
 
 	/**
@@ -181,6 +194,13 @@ public class ModrinthExtension extends DependencyDSL {
 		return this.detectLoaders;
 	}
 
+	/**
+	 * @return Whether the loaders named in the upload file's metadata are used if no loaders are set or detected.
+	 */
+	public Property<Boolean> getLoadersFromFile() {
+		return this.loadersFromFile;
+	}
+
 	/**
 	 * @return Whether the plugin is in debug mode. Debug mode does not actually upload any files.
 	 */
@@ -201,4 +221,71 @@ public class ModrinthExtension extends DependencyDSL {
 	public Property<Boolean> getAutoAddDependsOn() {
 		return autoAddDependsOn;
 	}
+
+	/**
+	 * @return How many threads the malware scan may use, shared by all files scanned at once. Defaults to the number of
+	 * available cores.
+	 */
+	public Property<Integer> getScanParallelism() {
+		return scanParallelism;
+	}
+
+	/**
+	 * @return Whether Fractureiser scan results are cached in the Gradle user home. Disable to always rescan.
+	 */
+	public Property<Boolean> getScanCache() {
+		return scanCache;
+	}
+
+	/**
+	 * @return How many scan results to keep in the cache before the least recently used ones are evicted.
+	 */
+	public Property<Integer> getScanCacheSize() {
+		return scanCacheSize;
+	}
+
+	/**
+	 * @return How many levels of jars nested inside the upload files (such as {@code META-INF/jars}) to scan. Set to
+	 * {@code 0} to only scan the files' own classes.
+	 */
+	public Property<Integer> getNestedJarDepth() {
+		return nestedJarDepth;
+	}
+
+	/**
+	 * @return The largest nested jar, in bytes, that will be scanned.
+	 */
+	public Property<Long> getNestedJarMaxSize() {
+		return nestedJarMaxSize;
+	}
+
+	/**
+	 * @return A JSON file with additional signatures to scan for.
+	 */
+	public RegularFileProperty getScanRules() {
+		return scanRules;
+	}
+
+	/**
+	 * @return A file with the SHA-256 hashes of more classes known to be clean, one per line, which are not scanned.
+	 */
+	public RegularFileProperty getCleanClassHashes() {
+		return cleanClassHashes;
+	}
+
+	/**
+	 * @return The names of configurations, such as {@code runtimeClasspath}, {@code include} or {@code shadow}, whose
+	 * resolved artifacts are scanned along with the upload files. None by default.
+	 */
+	public ListProperty<String> getScanConfigurations() {
+		return scanConfigurations;
+	}
+
+	/**
+	 * @return How many hours project IDs and versions looked up by slug or version number are cached in the Gradle
+	 * user home, shared by every build on the machine. Set to {@code 0} to always look them up.
+	 */
+	public Property<Integer> getLookupCacheHours() {
+		return lookupCacheHours;
+	}
 }
@@ -0,0 +1,30 @@
+package com.modrinth.minotaur;
+
+import org.gradle.api.GradleException;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Thrown when Modrinth answers a request made without Modrinth4J with an error status.
+ */
+@ApiStatus.Internal
+class ModrinthRequestException extends GradleException {
+	private static final long serialVersionUID = 1L;
+
+	private final int status;
+
+	/**
+	 * @param message what failed, including the status and the response
+	 * @param status  the HTTP status of the response
+	 */
+	ModrinthRequestException(String message, int status) {
+		super(message);
+		this.status = status;
+	}
+
+	/**
+	 * @return the HTTP status of the response
+	 */
+	int getStatus() {
+		return status;
+	}
+}
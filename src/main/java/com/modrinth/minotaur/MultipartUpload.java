@@ -0,0 +1,190 @@
+package com.modrinth.minotaur;
+
+import com.google.gson.JsonObject;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Creates a version by sending its data and files as one multipart request, streamed straight from disk. Unlike
+ * handing the files to Modrinth4J, no file is ever read into memory as a whole, so uploading a server pack of several
+ * hundred megabytes takes no more heap than uploading a small jar. The request is sent through the
+ * {@link ModrinthApiService}, so it waits for the rate limit like the other requests of the build.
+ */
+@ApiStatus.Internal
+class MultipartUpload {
+	/**
+	 * How much of a file is read and handed to the connection at once.
+	 */
+	private static final int CHUNK = 64 * 1024;
+
+	private final ModrinthApiService service;
+	private final String url;
+	private final String token;
+	private final String userAgent;
+
+	/**
+	 * @param service   the service to send the request through
+	 * @param url       the API URL, without a trailing slash
+	 * @param token     the token to authenticate with
+	 * @param userAgent the user agent to send
+	 */
+	MultipartUpload(ModrinthApiService service, String url, String token, String userAgent) {
+		this.service = service;
+		this.url = url;
+		this.token = token;
+		this.userAgent = userAgent;
+	}
+
+	/**
+	 * Uploads a new version. The files are sent as {@code file-0}, {@code file-1} and so on, the first being the
+	 * primary file, so {@code data} has to list those names as its {@code file_parts}.
+	 *
+	 * @param data     the version's data
+	 * @param files    the files to upload
+	 * @param progress reports how much has been sent and how fast
+	 * @return the response, which is the created version
+	 * @throws IOException if the request fails
+	 */
+	String createVersion(JsonObject data, List<File> files, ProgressLogger progress) throws IOException {
+		String boundary = "minotaur-" + UUID.randomUUID().toString().replace("-", "");
+		byte[] dataPart = (part(boundary, "data", null, "application/json") + data + "\r\n").getBytes(StandardCharsets.UTF_8);
+		List<byte[]> fileHeaders = new ArrayList<>(files.size());
+		long length = dataPart.length;
+		for (int i = 0; i < files.size(); i++) {
+			byte[] header = part(boundary, "file-" + i, files.get(i).getName(), "application/octet-stream")
+				.getBytes(StandardCharsets.UTF_8);
+			fileHeaders.add(header);
+			length += header.length + files.get(i).length() + 2;
+		}
+		byte[] end = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+		length += end.length;
+		long bodyLength = length;
+
+		return service.send(url, token, userAgent, "/version", connection -> {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			// Without a known length the whole body would be buffered to work it out
+			connection.setFixedLengthStreamingMode(bodyLength);
+			connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+
+			Throughput throughput = new Throughput(progress, bodyLength);
+			progress.started();
+			boolean failed = true;
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(dataPart);
+				throughput.sent(dataPart.length);
+				byte[] buffer = new byte[CHUNK];
+				for (int i = 0; i < files.size(); i++) {
+					out.write(fileHeaders.get(i));
+					throughput.sent(fileHeaders.get(i).length);
+					try (InputStream file = Files.newInputStream(files.get(i).toPath())) {
+						int read;
+						while ((read = file.read(buffer)) != -1) {
+							out.write(buffer, 0, read);
+							throughput.sent(read);
+						}
+					}
+					out.write('\r');
+					out.write('\n');
+				}
+				out.write(end);
+				failed = false;
+			} finally {
+				progress.completed(throughput.toString(), failed);
+			}
+
+			int status = connection.getResponseCode();
+			if (status >= 400) {
+				throw new ModrinthRequestException(String.format("Modrinth rejected the upload with HTTP %d: %s",
+					status, read(connection.getErrorStream())), status);
+			}
+			return read(connection.getInputStream());
+		});
+	}
+
+	private static String part(String boundary, String name, @Nullable String fileName, String contentType) {
+		StringBuilder part = new StringBuilder("--").append(boundary).append("\r\n")
+			.append("Content-Disposition: form-data; name=\"").append(name).append('"');
+		if (fileName != null) {
+			part.append("; filename=\"").append(fileName.replace("\"", "%22")).append('"');
+		}
+		return part.append("\r\nContent-Type: ").append(contentType).append("\r\n\r\n").toString();
+	}
+
+	/**
+	 * @param stream a response body, which is closed
+	 * @return the whole body, or an empty string if there is none
+	 * @throws IOException if the body cannot be read
+	 */
+	static String read(@Nullable InputStream stream) throws IOException {
+		if (stream == null) {
+			return "";
+		}
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+			StringBuilder text = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				text.append(buffer, 0, read);
+			}
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Reports how much of the request has been sent and how fast, at most a few times a second.
+	 */
+	private static class Throughput {
+		private static final long INTERVAL = 250_000_000L;
+
+		private final ProgressLogger progress;
+		private final long total;
+		private final long start = System.nanoTime();
+		private long sent;
+		private long reported = start;
+
+		Throughput(ProgressLogger progress, long total) {
+			this.progress = progress;
+			this.total = total;
+		}
+
+		void sent(long bytes) {
+			sent += bytes;
+			long now = System.nanoTime();
+			if (now - reported >= INTERVAL) {
+				reported = now;
+				progress.progress(String.format(Locale.ROOT, "%s / %s, %s/s",
+					size(sent), size(total), size(rate(now))));
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "Sent %s at %s/s", size(sent), size(rate(System.nanoTime())));
+		}
+
+		private long rate(long now) {
+			return (long) (sent * 1e9 / Math.max(1, now - start));
+		}
+
+		private static String size(long bytes) {
+			if (bytes < 1024) {
+				return bytes + " B";
+			} else if (bytes < 1024 * 1024) {
+				return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+			} else if (bytes < 1024L * 1024 * 1024) {
+				return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024));
+			}
+			return String.format(Locale.ROOT, "%.2f GiB", bytes / (1024.0 * 1024 * 1024));
+		}
+	}
+}
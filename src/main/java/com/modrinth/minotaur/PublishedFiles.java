@@ -0,0 +1,131 @@
+package com.modrinth.minotaur;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Looks up which versions files are already published in, by their hashes and in a single request, so that an upload
+ * which already went through is not attempted again.
+ */
+@ApiStatus.Internal
+class PublishedFiles {
+	private static final Gson GSON = new Gson();
+
+	private final ModrinthApiService service;
+	private final String url;
+	private final String token;
+	private final String userAgent;
+
+	/**
+	 * @param service   the service to send the request through, so it waits for the rate limit
+	 * @param url       the API URL, without a trailing slash
+	 * @param token     the token to authenticate with, which makes unlisted and draft versions visible too
+	 * @param userAgent the user agent to send
+	 */
+	PublishedFiles(ModrinthApiService service, String url, String token, String userAgent) {
+		this.service = service;
+		this.url = url;
+		this.token = token;
+		this.userAgent = userAgent;
+	}
+
+	/**
+	 * A version a file is published in.
+	 */
+	static class Version {
+		final String id;
+		final String projectId;
+		final String versionNumber;
+
+		Version(String id, String projectId, String versionNumber) {
+			this.id = id;
+			this.projectId = projectId;
+			this.versionNumber = versionNumber;
+		}
+	}
+
+	/**
+	 * @param sha512 the lowercase hex SHA-512 hashes of the files
+	 * @return the versions of the files which are published, by hash; files which are not have no entry
+	 * @throws IOException if the request fails
+	 */
+	Map<String, Version> lookup(Collection<String> sha512) throws IOException {
+		JsonObject body = new JsonObject();
+		JsonArray hashes = new JsonArray();
+		sha512.forEach(hashes::add);
+		body.add("hashes", hashes);
+		body.addProperty("algorithm", "sha512");
+		byte[] request = body.toString().getBytes(StandardCharsets.UTF_8);
+
+		String response = service.send(url, token, userAgent, "/version_files", connection -> {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(request.length);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(request);
+			}
+
+			int status = connection.getResponseCode();
+			if (status >= 400) {
+				throw new ModrinthRequestException(String.format("Failed to look up published files, HTTP %d: %s",
+					status, MultipartUpload.read(connection.getErrorStream())), status);
+			}
+			return MultipartUpload.read(connection.getInputStream());
+		});
+
+		Map<String, Version> versions = new HashMap<>();
+		JsonObject found = GSON.fromJson(response, JsonObject.class);
+		if (found != null) {
+			for (Map.Entry<String, JsonElement> entry : found.entrySet()) {
+				JsonObject version = entry.getValue().getAsJsonObject();
+				versions.put(entry.getKey(), new Version(version.get("id").getAsString(),
+					version.get("project_id").getAsString(), version.get("version_number").getAsString()));
+			}
+		}
+		return versions;
+	}
+
+	/**
+	 * @param file the file to hash
+	 * @return the lowercase hex SHA-512 of the file's contents
+	 * @throws IOException if the file could not be read
+	 */
+	static String sha512(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-512");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+			byte[] buffer = new byte[65536];
+			//noinspection StatementWithEmptyBody
+			while (in.read(buffer) != -1) {
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,137 @@
+package com.modrinth.minotaur;
+
+import com.google.gson.stream.JsonWriter;
+import com.modrinth.minotaur.scanner.IngestResult;
+import com.modrinth.minotaur.scanner.ScanMatch;
+import com.modrinth.minotaur.scanner.ScanStatistics;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The scan results of {@link TaskModrinthScan} in the SARIF format, which code scanning tools like GitHub's understand.
+ * Every file is one result: a failure if it is infected, a warning if it could not be scanned completely and a pass if
+ * it is clean. The results are written one at a time, as soon as each file is scanned.
+ */
+@ApiStatus.Internal
+class SarifReport implements Closeable {
+	private static final String RULE = "fractureiser";
+	private static final String ROOT = "PROJECTROOT";
+
+	private final JsonWriter json;
+	private final Path root;
+
+	/**
+	 * @param report the report file, which is replaced
+	 * @param root   the directory file locations are reported relative to
+	 * @throws IOException if the report cannot be created
+	 */
+	SarifReport(File report, File root) throws IOException {
+		this.root = root.toPath().toAbsolutePath();
+		Files.createDirectories(report.getParentFile().toPath());
+		json = new JsonWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8));
+		json.setIndent("  ");
+
+		json.beginObject();
+		json.name("$schema").value("https://json.schemastore.org/sarif-2.1.0.json");
+		json.name("version").value("2.1.0");
+		json.name("runs").beginArray().beginObject();
+
+		json.name("tool").beginObject().name("driver").beginObject();
+		json.name("name").value("Minotaur");
+		json.name("informationUri").value("https://github.com/modrinth/minotaur");
+		json.name("rules").beginArray().beginObject();
+		json.name("id").value(RULE);
+		json.name("shortDescription").beginObject().name("text").value("Fractureiser malware").endObject();
+		json.name("helpUri").value("https://github.com/fractureiser-investigation/fractureiser");
+		json.endObject().endArray();
+		json.endObject().endObject();
+
+		json.name("originalUriBaseIds").beginObject();
+		json.name(ROOT).beginObject().name("uri").value(this.root.toUri().toString()).endObject();
+		json.endObject();
+
+		json.name("results").beginArray();
+	}
+
+	void write(IngestResult result) throws IOException {
+		String name = result.getFile().getName();
+		ScanMatch match = result.getMatch();
+		json.beginObject();
+		json.name("ruleId").value(RULE);
+		if (!result.isScanned()) {
+			json.name("kind").value("notApplicable");
+			json.name("level").value("none");
+			json.name("message").beginObject().name("text").value(name + " is not a jar and was not scanned").endObject();
+		} else if (result.isInfected()) {
+			json.name("kind").value("fail");
+			json.name("level").value("error");
+			json.name("message").beginObject().name("text").value(name + " is infected with Fractureiser"
+				+ (match != null ? ", matching " + match : "")).endObject();
+		} else if (!result.isConclusive()) {
+			json.name("kind").value("fail");
+			json.name("level").value("warning");
+			json.name("message").beginObject().name("text").value(name
+				+ " could not be scanned completely, so it may still be infected").endObject();
+		} else {
+			json.name("kind").value("pass");
+			json.name("level").value("none");
+			json.name("message").beginObject().name("text").value("Fractureiser not detected in " + name).endObject();
+		}
+
+		json.name("locations").beginArray().beginObject();
+		json.name("physicalLocation").beginObject().name("artifactLocation").beginObject();
+		Path file = result.getFile().toPath().toAbsolutePath();
+		if (file.startsWith(root)) {
+			json.name("uri").value(root.relativize(file).toString().replace(File.separatorChar, '/'));
+			json.name("uriBaseId").value(ROOT);
+		} else {
+			json.name("uri").value(file.toUri().toString());
+		}
+		json.endObject().endObject();
+		if (match != null) {
+			String className = match.getClassName().replace('/', '.');
+			json.name("logicalLocations").beginArray().beginObject();
+			if (match.getMethod() != null) {
+				json.name("fullyQualifiedName").value(className + "." + match.getMethod());
+				json.name("kind").value("function");
+			} else {
+				json.name("fullyQualifiedName").value(className);
+				json.name("kind").value("type");
+			}
+			json.endObject().endArray();
+		}
+		json.endObject().endArray();
+
+		ScanStatistics stats = result.getStatistics();
+		json.name("properties").beginObject();
+		json.name("sha512").value(result.getSha512());
+		json.name("entries").value(stats.getEntries());
+		json.name("classesParsed").value(stats.getClassesParsed());
+		json.name("classesSkipped").value(stats.getClassesSkipped());
+		json.name("bytesInflated").value(stats.getBytesInflated());
+		json.name("millis").value(stats.getWallTimeMillis());
+		if (match != null) {
+			json.name("signature").value(match.getSignature());
+			json.name("entry").value(match.getEntry());
+		}
+		json.endObject();
+		json.endObject();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			json.endArray();
+			json.endObject().endArray();
+			json.endObject();
+		} finally {
+			json.close();
+		}
+	}
+}
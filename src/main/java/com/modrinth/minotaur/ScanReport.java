@@ -0,0 +1,198 @@
+package com.modrinth.minotaur;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.modrinth.minotaur.scanner.IngestResult;
+import com.modrinth.minotaur.scanner.ScanMatch;
+import com.modrinth.minotaur.scanner.ScanStatistics;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * The report written by {@link TaskModrinthScan}, which is how the upload learns about the files without reading them
+ * again. Along with the hashes and metadata, it tells how long each file took to scan, how much of it was scanned and,
+ * for an infected file, where a signature matched.
+ */
+@ApiStatus.Internal
+class ScanReport {
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	/**
+	 * One file in the report.
+	 */
+	static class Entry {
+		String file;
+		String path;
+		String sha1;
+		String sha512;
+		String verdict;
+		List<String> loaders;
+		@Nullable
+		String id;
+		@Nullable
+		String version;
+		long entries;
+		long classesParsed;
+		long classesSkipped;
+		long bytesInflated;
+		long millis;
+		@Nullable
+		Match match;
+	}
+
+	/**
+	 * Where a signature matched in an infected file.
+	 */
+	static class Match {
+		String signature;
+		String entry;
+		String className;
+		@Nullable
+		String method;
+	}
+
+	/**
+	 * Writes the report one file at a time, as soon as each is scanned, so it never has to be held in memory.
+	 */
+	static class Writer implements Closeable {
+		private final JsonWriter json;
+
+		/**
+		 * @param report the report file, which is replaced
+		 * @throws IOException if the report cannot be created
+		 */
+		Writer(File report) throws IOException {
+			Files.createDirectories(report.getParentFile().toPath());
+			json = GSON.newJsonWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8));
+			json.beginArray();
+		}
+
+		void write(IngestResult result) throws IOException {
+			GSON.toJson(toEntry(result), Entry.class, json);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				json.endArray();
+			} finally {
+				json.close();
+			}
+		}
+	}
+
+	private static Entry toEntry(IngestResult result) {
+		Entry entry = new Entry();
+		entry.file = result.getFile().getName();
+		entry.path = result.getFile().getAbsolutePath();
+		entry.sha1 = result.getSha1();
+		entry.sha512 = result.getSha512();
+		entry.verdict = !result.isScanned() ? "unscanned"
+			: !result.isConclusive() ? "error"
+			: result.isInfected() ? "infected" : "clean";
+		entry.loaders = result.getMetadata().getLoaders();
+		entry.id = result.getMetadata().getId();
+		entry.version = result.getMetadata().getVersion();
+
+		ScanStatistics stats = result.getStatistics();
+		entry.entries = stats.getEntries();
+		entry.classesParsed = stats.getClassesParsed();
+		entry.classesSkipped = stats.getClassesSkipped();
+		entry.bytesInflated = stats.getBytesInflated();
+		entry.millis = stats.getWallTimeMillis();
+
+		ScanMatch match = result.getMatch();
+		if (match != null) {
+			entry.match = new Match();
+			entry.match.signature = match.getSignature();
+			entry.match.entry = match.getEntry();
+			entry.match.className = match.getClassName();
+			entry.match.method = match.getMethod();
+		}
+		return entry;
+	}
+
+	/**
+	 * @param report the report file
+	 * @return the entries of the report, in the order the files were scanned, or an empty list if there is no report
+	 * @throws IOException if the report exists but could not be read
+	 */
+	static List<Entry> read(File report) throws IOException {
+		if (!report.isFile()) {
+			return Collections.emptyList();
+		}
+		try (Reader reader = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8)) {
+			List<Entry> entries = GSON.fromJson(reader, new TypeToken<List<Entry>>() {
+			}.getType());
+			return entries == null ? Collections.emptyList() : entries;
+		}
+	}
+
+	/**
+	 * Takes the SHA-512 of each of the given files from its entry, so that only files the report does not list under
+	 * their path are hashed, and each of them only once.
+	 *
+	 * @param entries the entries of a report
+	 * @param files   the files to hash
+	 * @return the lowercase hex SHA-512 of each file, in the order of the files
+	 * @throws IOException if a file has to be hashed but cannot be read
+	 */
+	static Map<File, String> sha512(List<Entry> entries, Collection<File> files) throws IOException {
+		Map<String, Entry> byPath = new HashMap<>();
+		for (Entry entry : entries) {
+			if (entry.path != null) {
+				byPath.put(entry.path, entry);
+			}
+		}
+
+		Map<File, String> hashes = new LinkedHashMap<>();
+		for (File file : files) {
+			Entry entry = byPath.get(file.getAbsolutePath());
+			hashes.put(file, entry != null ? entry.sha512 : PublishedFiles.sha512(file));
+		}
+		return hashes;
+	}
+
+	/**
+	 * Finds the entries of the given files. Files are matched by absolute path, as different files may share a name.
+	 * A report restored from the build cache may have been written for the same contents at another path, so a file
+	 * without an entry for its path is hashed and matched by its SHA-512 instead.
+	 *
+	 * @param entries the entries of a report
+	 * @param files   the files to find
+	 * @return the entry of each file which has one
+	 * @throws IOException if a file has to be hashed but cannot be read
+	 */
+	static Map<File, Entry> match(List<Entry> entries, Collection<File> files) throws IOException {
+		Map<String, Entry> byPath = new HashMap<>();
+		Map<String, Entry> bySha512 = new HashMap<>();
+		for (Entry entry : entries) {
+			if (entry.path != null) {
+				byPath.put(entry.path, entry);
+			}
+			bySha512.put(entry.sha512, entry);
+		}
+
+		Map<File, Entry> matched = new LinkedHashMap<>();
+		for (File file : files) {
+			Entry entry = byPath.get(file.getAbsolutePath());
+			if (entry == null && !entries.isEmpty()) {
+				entry = bySha512.get(PublishedFiles.sha512(file));
+			}
+			if (entry != null) {
+				matched.put(file, entry);
+			}
+		}
+		return matched;
+	}
+}
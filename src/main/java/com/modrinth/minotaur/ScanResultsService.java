@@ -0,0 +1,36 @@
+package com.modrinth.minotaur;
+
+import com.modrinth.minotaur.scanner.SharedScanResults;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Shares scan results between the {@code modrinthScan} tasks of every project in the build, so a jar which ends up in
+ * several projects is only scanned once. The results are dropped with the service at the end of the build, later
+ * builds reuse the scan cache in the Gradle user home instead.
+ */
+@ApiStatus.Internal
+public abstract class ScanResultsService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+	private static final Logger LOGGER = Logging.getLogger(ScanResultsService.class);
+
+	private final SharedScanResults results = new SharedScanResults(1024);
+
+	/**
+	 * @return the results shared by every project of the build
+	 */
+	public SharedScanResults getResults() {
+		return results;
+	}
+
+	@Override
+	public void close() {
+		long hits = results.getHits();
+		long misses = results.getMisses();
+		if (hits + misses > 0) {
+			LOGGER.info("Minotaur scanned {} files in this build and reused the results for {} more", misses, hits);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.modrinth.minotaur;
+
+import com.modrinth.minotaur.dependencies.Dependency;
+import com.modrinth.minotaur.dependencies.DependencyLock;
+import com.modrinth.minotaur.dependencies.DependencyResolver;
+import masecla.modrinth4j.main.ModrinthAPI;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.modrinth.minotaur.Util.*;
+
+/**
+ * A task used to resolve the dependencies declared in {@link ModrinthExtension} to their project and version IDs once,
+ * and to store them in a lockfile which the {@code modrinth} task reads instead of looking them up again.
+ */
+public abstract class TaskModrinthLockDependencies extends DefaultTask {
+	/**
+	 * The lockfile to write, {@code modrinth.lock} in the project directory by default.
+	 *
+	 * @return property
+	 */
+	@Internal
+	public abstract RegularFileProperty getLockFile();
+
+	/**
+	 * The service sharing Modrinth API clients between tasks.
+	 *
+	 * @return property
+	 */
+	@Internal
+	@ApiStatus.Internal
+	public abstract Property<ModrinthApiService> getApiService();
+
+	/**
+	 * Looks up every dependency, ignoring the existing lockfile, and replaces the lockfile with the results.
+	 */
+	@TaskAction
+	public void apply() {
+		ModrinthExtension ext = ext(getProject());
+		List<Dependency> dependencies = new ArrayList<>();
+		dependencies.addAll(ext.getNamedDependenciesAsList());
+		dependencies.addAll(ext.getDependencies().get());
+
+		ModrinthAPI api = api(getProject(), getApiService().get());
+		DependencyResolver resolver = new DependencyResolver(api);
+		resolver.resolve(dependencies);
+
+		File file = getLockFile().get().getAsFile();
+		try {
+			resolver.getResolved().write(file);
+		} catch (IOException e) {
+			throw new GradleException("Failed to write " + file, e);
+		}
+		getLogger().lifecycle("Locked {} dependencies in {}.", dependencies.size(), file.getName());
+	}
+}
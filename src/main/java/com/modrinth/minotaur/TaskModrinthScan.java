@@ -0,0 +1,277 @@
+package com.modrinth.minotaur;
+
+import com.modrinth.minotaur.scanner.GradleScanLogger;
+import com.modrinth.minotaur.scanner.IngestResult;
+import com.modrinth.minotaur.scanner.JarInfectionScanner;
+import com.modrinth.minotaur.scanner.KnownCleanClasses;
+import com.modrinth.minotaur.scanner.ScanCache;
+import com.modrinth.minotaur.scanner.ScanLogger;
+import com.modrinth.minotaur.scanner.ScanOptions;
+import com.modrinth.minotaur.scanner.SharedScanResults;
+import com.modrinth.minotaur.scanner.Signatures;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A task which scans the files to be uploaded for the Fractureiser malware, writing a report of the results.
+ * Scanning a file also yields its hashes and any mod or plugin metadata for the upload. The
+ * artifacts of the dependencies in the configured configurations are scanned as well.
+ * <p>
+ * The files are tracked by content only, so unchanged artifacts are never scanned twice, even across machines sharing
+ * a build cache. A file which is infected, or which could not be scanned completely, fails the task, which also keeps
+ * its result out of the build cache.
+ */
+@CacheableTask
+public abstract class TaskModrinthScan extends DefaultTask {
+	/**
+	 * @return The files to scan.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.NONE)
+	public abstract ConfigurableFileCollection getFiles();
+
+	/**
+	 * @return The resolved artifacts of the dependencies to scan along with the files.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.NONE)
+	public abstract ConfigurableFileCollection getDependencyFiles();
+
+	/**
+	 * @return The modules the dependency files belong to, by which their verdicts are cached.
+	 */
+	@Internal
+	public abstract SetProperty<ResolvedArtifactResult> getDependencyArtifacts();
+
+	/**
+	 * @return A JSON file with additional signatures to scan for.
+	 */
+	@InputFile
+	@Optional
+	@PathSensitive(PathSensitivity.NONE)
+	public abstract RegularFileProperty getRules();
+
+	/**
+	 * @return A file with the SHA-256 hashes of more classes known to be clean, which are not scanned.
+	 */
+	@InputFile
+	@Optional
+	@PathSensitive(PathSensitivity.NONE)
+	public abstract RegularFileProperty getCleanClassHashes();
+
+	/**
+	 * @return How many levels of nested jars to scan.
+	 */
+	@Input
+	public abstract Property<Integer> getNestedJarDepth();
+
+	/**
+	 * @return The largest nested jar, in bytes, that will be scanned.
+	 */
+	@Input
+	public abstract Property<Long> getNestedJarMaxSize();
+
+	/**
+	 * @return How many threads the scan may use, shared by all files.
+	 */
+	@Internal
+	public abstract Property<Integer> getParallelism();
+
+	/**
+	 * @return Whether to reuse scan results for files and classes already scanned.
+	 */
+	@Internal
+	public abstract Property<Boolean> getScanCache();
+
+	/**
+	 * @return How many scan results to keep in the cache in the Gradle user home.
+	 */
+	@Internal
+	public abstract Property<Integer> getScanCacheSize();
+
+	/**
+	 * @return The results shared with the other projects' scans, used along with the scan cache.
+	 */
+	@Internal
+	public abstract Property<ScanResultsService> getScanResults();
+
+	/**
+	 * @return The file the scan report is written to.
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getReport();
+
+	/**
+	 * @return The file the scan results are written to in the SARIF format.
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getSarifReport();
+
+	/**
+	 * Scans every file, writing a JSON report with each file's hashes, verdict, metadata and scan statistics, along
+	 * with a SARIF report of the verdicts. Each file is added to the reports as soon as it has been scanned.
+	 * <p>
+	 * The files are scanned at the same time, sharing the configured parallelism between them. As soon as one of them
+	 * turns out to be infected the others are cancelled. What each scan logs is held back and printed file by file in
+	 * the order the files were given, so the output reads the same no matter which scan finishes first.
+	 */
+	@TaskAction
+	public void scan() {
+		File gradleUserHome = getProject().getGradle().getGradleUserHomeDir();
+		Signatures signatures;
+		try {
+			signatures = getRules().isPresent()
+				? Signatures.withRules(getRules().get().getAsFile(), gradleUserHome)
+				: Signatures.builtIn();
+		} catch (IOException e) {
+			throw new GradleException("Failed to load scan rules from " + getRules().get(), e);
+		}
+		KnownCleanClasses knownClean = KnownCleanClasses.bundled();
+		if (getCleanClassHashes().isPresent()) {
+			try {
+				knownClean = knownClean.withFile(getCleanClassHashes().get().getAsFile());
+			} catch (IOException e) {
+				throw new GradleException("Failed to load clean class hashes from " + getCleanClassHashes().get(), e);
+			}
+		}
+		ScanCache cache = getScanCache().get() ? new ScanCache(gradleUserHome, getScanCacheSize().get()) : null;
+		List<File> files = new ArrayList<>(getFiles().getFiles());
+		int parallelism = Math.max(1, getParallelism().get());
+		int concurrentFiles = Math.max(1, Math.min(files.size(), parallelism));
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		ScanOptions scanOptions = scanOptions(signatures, knownClean, cache)
+			.parallelism(Math.max(1, parallelism / concurrentFiles))
+			.cancelWhen(cancelled::get);
+		SharedScanResults shared = getScanCache().get() ? getScanResults().get().getResults() : null;
+
+		try {
+			ExecutorService pool = Executors.newFixedThreadPool(concurrentFiles);
+			List<BufferedLogger> loggers = new ArrayList<>();
+			List<Future<IngestResult>> futures = new ArrayList<>();
+			for (File file : files) {
+				BufferedLogger logger = new BufferedLogger(getLogger());
+				loggers.add(logger);
+				futures.add(pool.submit(() -> {
+					ScanLogger scanLogger = new GradleScanLogger(logger.getLogger());
+					IngestResult result = shared != null
+						? shared.ingest(scanLogger, file, scanOptions)
+						: JarInfectionScanner.ingest(scanLogger, file, scanOptions);
+					if (result.isInfected()) {
+						cancelled.set(true);
+					}
+					return result;
+				}));
+			}
+
+			List<String> infected = new ArrayList<>();
+			List<String> inconclusive = new ArrayList<>();
+			List<String> skipped = new ArrayList<>();
+			try (ScanReport.Writer report = new ScanReport.Writer(getReport().get().getAsFile());
+				SarifReport sarif = new SarifReport(getSarifReport().get().getAsFile(), getProject().getRootDir())) {
+				for (int i = 0; i < files.size(); i++) {
+					File file = files.get(i);
+					try {
+						IngestResult result = futures.get(i).get();
+						report.write(result);
+						sarif.write(result);
+						if (result.isInfected()) {
+							infected.add(file.getName());
+						} else if (!result.isConclusive()) {
+							// Files which are not zips at all are only warned about, like they always were
+							inconclusive.add(file.getName());
+						}
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof CancellationException) {
+							skipped.add(file.getName());
+							continue;
+						}
+						cancelled.set(true);
+						throw new GradleException(String.format("Failed to scan %s", file.getName()), e.getCause());
+					} finally {
+						loggers.get(i).replay();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancelled.set(true);
+				throw new GradleException("Interrupted while scanning", e);
+			} catch (IOException e) {
+				cancelled.set(true);
+				throw new GradleException("Failed to write scan report", e);
+			} finally {
+				pool.shutdown();
+				if (cancelled.get()) {
+					// The scans still running stop soon, wait for them so that nothing they log is lost
+					try {
+						pool.awaitTermination(1, TimeUnit.MINUTES);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				// After a failure the loop above did not get to every file, but their logs are still wanted
+				for (BufferedLogger logger : loggers) {
+					logger.replay();
+				}
+			}
+			if (!skipped.isEmpty()) {
+				getLogger().lifecycle("Stopped scanning {} after finding an infected file", String.join(", ", skipped));
+			}
+
+			if (!infected.isEmpty()) {
+				throw new GradleException(String.format("!!!! %s infected with Fractureiser", String.join(", ", infected)));
+			}
+			if (!inconclusive.isEmpty()) {
+				throw new GradleException(String.format("Failed to scan %s completely, so it may still be infected",
+					String.join(", ", inconclusive)));
+			}
+
+			Set<ResolvedArtifactResult> dependencies = getDependencyArtifacts().get();
+			if (!dependencies.isEmpty()) {
+				List<String> infectedDependencies;
+				try {
+					infectedDependencies = new DependencyScanner(scanOptions(signatures, knownClean, cache).parallelism(1),
+						cache != null, parallelism).scan(new GradleScanLogger(getLogger()), dependencies);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new GradleException("Interrupted while scanning dependencies", e);
+				}
+				if (!infectedDependencies.isEmpty()) {
+					throw new GradleException(String.format("!!!! Dependencies %s infected with Fractureiser",
+						String.join(", ", infectedDependencies)));
+				}
+			}
+		} finally {
+			if (cache != null) {
+				try {
+					cache.saveClasses();
+				} catch (IOException e) {
+					getLogger().warn("Failed to cache class scan results", e);
+				}
+			}
+		}
+	}
+
+	private ScanOptions scanOptions(Signatures signatures, KnownCleanClasses knownClean, @Nullable ScanCache cache) {
+		return new ScanOptions()
+			.nestedJarDepth(getNestedJarDepth().get())
+			.nestedJarMaxSize(getNestedJarMaxSize().get())
+			.signatures(signatures)
+			.knownClean(knownClean)
+			.cache(cache);
+	}
+}
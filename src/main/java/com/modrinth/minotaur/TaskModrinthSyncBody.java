@@ -1,11 +1,15 @@
 package com.modrinth.minotaur;
 
 import com.google.gson.JsonObject;
+import com.modrinth.minotaur.dependencies.LookupCache;
 import masecla.modrinth4j.endpoints.project.ModifyProject.ProjectModifications;
 import masecla.modrinth4j.main.ModrinthAPI;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.ApiStatus;
 
 import java.util.Objects;
 import java.util.regex.Pattern;
@@ -15,7 +19,16 @@ import static com.modrinth.minotaur.Util.*;
 /**
  * A task used to communicate with Modrinth for the purpose of syncing project body with, for example, a README.
  */
-public class TaskModrinthSyncBody extends DefaultTask {
+public abstract class TaskModrinthSyncBody extends DefaultTask {
+	/**
+	 * The service sharing Modrinth API clients between tasks.
+	 *
+	 * @return property
+	 */
+	@Internal
+	@ApiStatus.Internal
+	public abstract Property<ModrinthApiService> getApiService();
+
 	/**
 	 * Uploads a body to a project, both of which are specified in {@link ModrinthExtension}.
 	 */
@@ -28,12 +41,14 @@ public class TaskModrinthSyncBody extends DefaultTask {
 				throw new GradleException("Sync project body task was called, but `syncBodyFrom` was null!");
 			}
 
-			ModrinthAPI api = api(getProject());
+			ModrinthAPI api = api(getProject(), getApiService().get());
+			LookupCache cache = lookupCache(getProject());
 
 			// This isn't used until later, but resolve it early anyway to throw invalid IDs early
+			String slug = ext.getProjectId().get();
 			String id = Objects.requireNonNull(
-				api.projects().getProjectIdBySlug(ext.getProjectId().get()).join(),
-				"Failed to resolve project ID: " + ext.getProjectId().get()
+				projectId(api, cache, slug),
+				"Failed to resolve project ID: " + slug
 			);
 			getLogger().debug("Syncing body to project {}", id);
 
@@ -49,7 +64,15 @@ public class TaskModrinthSyncBody extends DefaultTask {
 				return;
 			}
 
-			api.projects().modify(id, ProjectModifications.builder().body(body).build()).join();
+			try {
+				api.projects().modify(id, ProjectModifications.builder().body(body).build()).join();
+			} catch (Exception e) {
+				// The cached ID may be outdated, so look it up again next time
+				if (cache != null && isNotFoundOrInvalid(e)) {
+					cache.invalidateProject(slug);
+				}
+				throw e;
+			}
 			getLogger().lifecycle("Successfully synced body to project {}.", ext.getProjectId().get());
 		} catch (Exception e) {
 			if (ext.getFailSilently().get()) {
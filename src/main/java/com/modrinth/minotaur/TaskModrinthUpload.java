@@ -2,11 +2,14 @@ package com.modrinth.minotaur;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.modrinth.minotaur.dependencies.Dependency;
+import com.modrinth.minotaur.dependencies.DependencyLock;
+import com.modrinth.minotaur.dependencies.DependencyResolver;
+import com.modrinth.minotaur.dependencies.LookupCache;
 import com.modrinth.minotaur.responses.ResponseUpload;
-import com.modrinth.minotaur.scanner.JarInfectionScanner;
 import io.papermc.paperweight.userdev.PaperweightUserExtension;
-import masecla.modrinth4j.endpoints.version.CreateVersion.CreateVersionRequest;
 import masecla.modrinth4j.main.ModrinthAPI;
 import masecla.modrinth4j.model.version.ProjectVersion;
 import masecla.modrinth4j.model.version.ProjectVersion.ProjectDependency;
@@ -14,19 +17,23 @@ import masecla.modrinth4j.model.version.ProjectVersion.VersionType;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.plugins.PluginManager;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.jetbrains.annotations.ApiStatus;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 import static com.modrinth.minotaur.Util.*;
 
@@ -74,6 +81,39 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 	@ApiStatus.Internal
 	public abstract ConfigurableFileCollection getWiredInputFiles();
 
+	/**
+	 * The report of the {@code modrinthScan} task, with the hashes and metadata of the files to upload.
+	 *
+	 * @return property
+	 */
+	@Internal
+	@ApiStatus.Internal
+	public abstract RegularFileProperty getScanReport();
+
+	/**
+	 * The lockfile written by the {@code modrinthLockDependencies} task. Locked dependencies are not looked up.
+	 *
+	 * @return property
+	 */
+	@Internal
+	public abstract RegularFileProperty getLockFile();
+
+	/**
+	 * The service sharing Modrinth API clients between tasks.
+	 *
+	 * @return property
+	 */
+	@Internal
+	@ApiStatus.Internal
+	public abstract Property<ModrinthApiService> getApiService();
+
+	/**
+	 * @return Gradle's factory for reporting the progress of the upload
+	 */
+	@Inject
+	@ApiStatus.Internal
+	protected abstract ProgressLoggerFactory getProgressLoggerFactory();
+
 	/**
 	 * Defines what to do when the Modrinth upload task is invoked.
 	 * <ol>
@@ -91,10 +131,11 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 		ModrinthExtension ext = ext(getProject());
 		PluginManager pluginManager = getProject().getPluginManager();
 		try {
-			ModrinthAPI api = api(getProject());
+			ModrinthAPI api = api(getProject(), getApiService().get());
+			LookupCache cache = lookupCache(getProject());
 
 			String slug = ext.getProjectId().get();
-			String id = api.projects().getProjectIdBySlug(slug).join();
+			String id = projectId(api, cache, slug);
 			if (id == null) {
 				if (ext.getDebugMode().get()) {
 					getLogger().error("Cannot find project with id '{}'.", slug);
@@ -146,6 +187,21 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 				}
 			}
 
+			// Read what the scan found out about the files while it was reading them anyway
+			List<ScanReport.Entry> scanned = ScanReport.read(getScanReport().get().getAsFile());
+			for (ScanReport.Entry entry : scanned) {
+				getLogger().debug("File {} has SHA-1 {} and SHA-512 {}", entry.path, entry.sha1, entry.sha512);
+			}
+
+			if (ext.getLoaders().get().isEmpty() && ext.getLoadersFromFile().get()) {
+				File primary = ext.getFile().get().getAsFile();
+				ScanReport.Entry entry = ScanReport.match(scanned, Collections.singletonList(primary)).get(primary);
+				if (entry != null && entry.loaders != null && !entry.loaders.isEmpty()) {
+					getLogger().warn("No loaders were specified, using {} from the metadata of {}.", entry.loaders, primary.getName());
+					entry.loaders.forEach(loader -> add(ext.getLoaders(), loader));
+				}
+			}
+
 			if (ext.getLoaders().get().isEmpty()) {
 				throw new GradleException("Cannot upload to Modrinth: no loaders specified!");
 			}
@@ -197,10 +253,11 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 
 			// Convert each of our proto-dependencies to a proper Modrinth4J ProjectDependency
 			List<Dependency> protoDependencies = new ArrayList<>();
-			List<ProjectDependency> dependencies = new ArrayList<>();
 			protoDependencies.addAll(ext.getNamedDependenciesAsList());
 			protoDependencies.addAll(ext.getDependencies().get());
-			protoDependencies.stream().map(dependency -> dependency.toNew(api)).forEach(dependencies::add);
+			DependencyLock lock = DependencyLock.read(getLockFile().get().getAsFile());
+			DependencyResolver resolver = new DependencyResolver(api, lock, cache);
+			List<ProjectDependency> dependencies = resolver.resolve(protoDependencies);
 
 			// Get each of the files, starting with the primary file
 			List<File> files = new ArrayList<>();
@@ -218,40 +275,72 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 				files.add(resolvedFile);
 			});
 
-			// Scan detected files for presence of the Fractureiser malware
-			files.forEach(file -> {
-				try (ZipFile zipFile = new ZipFile(file)) {
-					JarInfectionScanner.scan(getLogger(), zipFile);
-				} catch (ZipException e) {
-					getLogger().warn("Failed to scan {}. Not a valid zip or jar file", file.getName(), e);
-				} catch (IOException e) {
-					throw new GradleException(String.format("Failed to scan %s", file.getName()), e);
-				}
-			});
+			// A re-run after the upload already went through, for example when CI failed later on, reuses that version
+			PublishedFiles.Version published = findPublished(ext, id, files, scanned);
+			if (published != null) {
+				newVersion = api.versions().getVersion(published.id).join();
+				//noinspection deprecation
+				uploadInfo = new ResponseUpload(newVersion);
+				getLogger().lifecycle("All files are already published on Modrinth as version {} ({}), not uploading them again.",
+					published.versionNumber, published.id);
+				return;
+			}
 
 			// Start construction of the actual request!
-			CreateVersionRequest data = CreateVersionRequest.builder()
-				.projectId(id)
-				.versionNumber(versionNumber)
-				.name(ext.getVersionName().get())
-				.changelog(ext.getChangelog().get().replaceAll("\r\n", "\n"))
-				.versionType(VersionType.valueOf(ext.getVersionType().get().toUpperCase(Locale.ROOT)))
-				.gameVersions(ext.getGameVersions().get())
-				.loaders(ext.getLoaders().get())
-				.dependencies(dependencies)
-				.files(files)
-				.build();
+			JsonObject data = new JsonObject();
+			data.addProperty("project_id", id);
+			data.addProperty("version_number", versionNumber);
+			data.addProperty("name", ext.getVersionName().get());
+			data.addProperty("changelog", ext.getChangelog().get().replaceAll("\r\n", "\n"));
+			data.addProperty("version_type", VersionType.valueOf(ext.getVersionType().get().toUpperCase(Locale.ROOT)).name().toLowerCase(Locale.ROOT));
+			data.add("game_versions", array(ext.getGameVersions().get()));
+			data.add("loaders", array(ext.getLoaders().get()));
+			data.addProperty("featured", false);
+			JsonArray dependencyArray = new JsonArray();
+			for (ProjectDependency dependency : dependencies) {
+				JsonObject object = new JsonObject();
+				object.addProperty("version_id", dependency.getVersionId());
+				object.addProperty("project_id", dependency.getProjectId());
+				object.addProperty("dependency_type", dependency.getDependencyType().name().toLowerCase(Locale.ROOT));
+				dependencyArray.add(object);
+			}
+			data.add("dependencies", dependencyArray);
+			List<String> fileParts = new ArrayList<>();
+			for (int i = 0; i < files.size(); i++) {
+				fileParts.add("file-" + i);
+			}
+			data.add("file_parts", array(fileParts));
+			data.addProperty("primary_file", fileParts.get(0));
 
 			// Return early in debug mode
 			if (ext.getDebugMode().get()) {
 				Gson gson = new GsonBuilder().setPrettyPrinting().create();
 				getLogger().lifecycle("Full data to be sent for upload: {}", gson.toJson(data));
+				getLogger().lifecycle("Files to be uploaded: {}", files);
 				getLogger().lifecycle("Minotaur debug mode is enabled. Not going to upload this version.");
 				return;
 			}
 
-			// Execute the request
-			ProjectVersion version = api.versions().createProjectVersion(data).join();
+			// Execute the request, streaming the files rather than loading them into memory
+			ProjectVersion version;
+			try {
+				ProgressLogger progress = getProgressLoggerFactory().newOperation(TaskModrinthUpload.class)
+					.setDescription("Uploading to Modrinth");
+				MultipartUpload upload = new MultipartUpload(getApiService().get(), apiUrl(getProject()),
+					ext.getToken().get(), userAgent(getProject()));
+				String response = upload.createVersion(data, files, progress);
+				String versionId = new Gson().fromJson(response, JsonObject.class).get("id").getAsString();
+				version = api.versions().getVersion(versionId).join();
+			} catch (Exception e) {
+				// The cached IDs may be outdated, so look them up again next time
+				if (isNotFoundOrInvalid(e)) {
+					if (cache != null) {
+						cache.invalidateProject(slug);
+					}
+					resolver.invalidateCache();
+				}
+				throw e;
+			}
 			newVersion = version;
 			//noinspection deprecation
 			uploadInfo = new ResponseUpload(version);
@@ -279,6 +368,56 @@ public abstract class TaskModrinthUpload extends DefaultTask {
 		}
 	}
 
+	/**
+	 * Looks up all files at once by their SHA-512, which the scan usually already worked out.
+	 *
+	 * @return the version of the project all files are published in, or {@code null} if none of them are published
+	 * @throws GradleException if only some of the files are published, or in another version or project
+	 */
+	@Nullable
+	private PublishedFiles.Version findPublished(ModrinthExtension ext, String projectId, List<File> files,
+		List<ScanReport.Entry> scanned) throws IOException {
+		Map<File, String> hashes = ScanReport.sha512(scanned, files);
+
+		Map<String, PublishedFiles.Version> published;
+		try {
+			PublishedFiles lookup = new PublishedFiles(getApiService().get(), apiUrl(getProject()), ext.getToken().get(),
+				userAgent(getProject()));
+			published = lookup.lookup(new LinkedHashSet<>(hashes.values()));
+		} catch (IOException | RuntimeException e) {
+			getLogger().warn("Could not check whether the files are already published on Modrinth, uploading them anyway.", e);
+			return null;
+		}
+		if (published.isEmpty()) {
+			return null;
+		}
+
+		PublishedFiles.Version version = published.get(hashes.get(files.get(0)));
+		boolean reusable = version != null && version.projectId.equals(projectId);
+		List<String> conflicts = new ArrayList<>();
+		for (Map.Entry<File, String> entry : hashes.entrySet()) {
+			PublishedFiles.Version found = published.get(entry.getValue());
+			if (found == null) {
+				reusable = false;
+			} else {
+				reusable = reusable && found.id.equals(version.id);
+				conflicts.add(String.format("%s is already published in version %s (%s) of project %s",
+					entry.getKey().getName(), found.versionNumber, found.id, found.projectId));
+			}
+		}
+		if (reusable) {
+			return version;
+		}
+		throw new GradleException("Cannot upload files which are already published on Modrinth:\n - "
+			+ String.join("\n - ", conflicts));
+	}
+
+	private static JsonArray array(List<String> elements) {
+		JsonArray array = new JsonArray();
+		elements.forEach(array::add);
+		return array;
+	}
+
 	// avoid adding duplicates to `ListProperty`s
 	private static <T> void add(final ListProperty<T> list, final T element) {
 		if (!list.get().contains(element)) {
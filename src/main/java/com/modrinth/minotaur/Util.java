@@ -1,5 +1,6 @@
 package com.modrinth.minotaur;
 
+import com.modrinth.minotaur.dependencies.LookupCache;
 import masecla.modrinth4j.client.agent.UserAgent;
 import masecla.modrinth4j.main.ModrinthAPI;
 import org.gradle.api.Project;
@@ -19,14 +20,12 @@ import java.io.File;
 class Util {
 	/**
 	 * @param project Gradle project for getting various info from
-	 * @return A valid {@link ModrinthAPI} instance
+	 * @param service the service sharing clients between tasks
+	 * @return A valid {@link ModrinthAPI} instance, shared with every other task using the same URL and token
 	 */
-	static ModrinthAPI api(Project project) {
+	static ModrinthAPI api(Project project, ModrinthApiService service) {
 		ModrinthExtension ext = ext(project);
-		String url = ext.getApiUrl().get();
-		if (url.endsWith("/")) {
-			url = url.substring(0, url.length() - 1);
-		}
+		String url = apiUrl(project);
 
 		UserAgent agent = UserAgent.builder()
 			.authorUsername("modrinth")
@@ -42,7 +41,73 @@ class Util {
 			project.getLogger().warn("Using GitHub tokens for authentication is deprecated. Please begin to use personal-access tokens.");
 		}
 
-		return ModrinthAPI.rateLimited(agent, url, token);
+		return service.get(url, token, () -> ModrinthAPI.rateLimited(agent, url, token));
+	}
+
+	/**
+	 * @param project Gradle project for getting various info from
+	 * @return The API URL, without a trailing slash
+	 */
+	static String apiUrl(Project project) {
+		String apiUrl = ext(project).getApiUrl().get();
+		return apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+	}
+
+	/**
+	 * @param project Gradle project for getting various info from
+	 * @return The user agent for requests made without Modrinth4J
+	 */
+	static String userAgent(Project project) {
+		return "modrinth/minotaur/" + Util.class.getPackage().getImplementationVersion()
+			+ " (" + ext(project).getProjectId().get() + "/" + resolveVersionNumber(project) + ")";
+	}
+
+	/**
+	 * @param project Gradle project for getting various info from
+	 * @return The cache for project and version lookups, or {@code null} if it is disabled
+	 */
+	@Nullable
+	static LookupCache lookupCache(Project project) {
+		ModrinthExtension ext = ext(project);
+		int hours = ext.getLookupCacheHours().get();
+		return hours > 0 ? new LookupCache(project.getGradle().getGradleUserHomeDir(), apiUrl(project), hours) : null;
+	}
+
+	/**
+	 * Tells whether a request failed because Modrinth found nothing or rejected what was sent, which is what an ID
+	 * that went stale in the lookup cache leads to. An invalid token, the rate limit or a timeout say nothing about the
+	 * cached IDs, so they are kept.
+	 *
+	 * @param e the failure
+	 * @return whether the cached IDs used by the request should be looked up again
+	 */
+	static boolean isNotFoundOrInvalid(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ModrinthRequestException) {
+				int status = ((ModrinthRequestException) cause).getStatus();
+				return status == 400 || status == 404;
+			}
+			// Modrinth4J passes on the error Modrinth answered with
+			String message = cause.getMessage();
+			if (message != null && (message.contains("not_found") || message.contains("invalid_input"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param api   {@link ModrinthAPI} instance
+	 * @param cache the cache to look the slug up in first, if any
+	 * @param slug  the slug or ID of a project
+	 * @return The project's ID, or {@code null} if there is no such project
+	 */
+	@Nullable
+	static String projectId(ModrinthAPI api, @Nullable LookupCache cache, String slug) {
+		if (cache == null) {
+			return api.projects().getProjectIdBySlug(slug).join();
+		}
+		return cache.projectId(slug, () -> api.projects().getProjectIdBySlug(slug)).join();
 	}
 
 	/**
@@ -3,14 +3,14 @@ package com.modrinth.minotaur.dependencies;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import masecla.modrinth4j.main.ModrinthAPI;
-import masecla.modrinth4j.model.version.ProjectVersion;
 import masecla.modrinth4j.model.version.ProjectVersion.ProjectDependency;
 import masecla.modrinth4j.model.version.ProjectVersion.ProjectDependencyType;
 import org.gradle.api.GradleException;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.Collections;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents the superclass for {@link ModDependency} and {@link VersionDependency}.
@@ -56,31 +56,46 @@ public class Dependency {
 	 * @return a {@link ProjectDependency} instance from a {@link Dependency}
 	 */
 	public ProjectDependency toNew(ModrinthAPI api) {
+		return toNew(api, new DependencyLock());
+	}
+
+	/**
+	 * @param api  {@link ModrinthAPI} instance
+	 * @param lock the locked dependencies, which are read first and only looked up if this one is not among them
+	 * @return a {@link ProjectDependency} instance from a {@link Dependency}
+	 */
+	public ProjectDependency toNew(ModrinthAPI api, DependencyLock lock) {
+		return new DependencyResolver(api, lock, null).resolve(Collections.singletonList(this)).get(0);
+	}
+
+	/**
+	 * @param resolver the {@link DependencyResolver} to look up projects and versions with
+	 * @return a {@link ProjectDependency} instance from a {@link Dependency}, once it is resolved
+	 */
+	CompletableFuture<ProjectDependency> toNew(DependencyResolver resolver) {
 		if (this instanceof ModDependency) {
 			ModDependency dep = (ModDependency) this;
-			String id = Objects.requireNonNull(
-				api.projects().getProjectIdBySlug(dep.getProjectId()).join(),
-				"Failed to resolve dependency project ID: " + dep.getProjectId()
-			);
-			return new ProjectDependency(null, id, null, dep.getDependencyType());
+			return resolver.projectId(dep.getProjectId()).handle((id, e) -> {
+				if (e != null || id == null) {
+					throw new GradleException("Failed to resolve dependency project ID: " + dep.getProjectId(), e);
+				}
+				return new ProjectDependency(null, id, null, dep.getDependencyType());
+			});
 		} else if (this instanceof VersionDependency) {
 			VersionDependency dep = (VersionDependency) this;
-			ProjectVersion version;
-			try {
-				version = dep.getProjectId() == null
-					? api.versions().getVersion(dep.getVersionId()).join()
-					: api.versions().getVersionByNumber(dep.getProjectId(), dep.getVersionId()).join();
-			} catch (Exception e) {
-				throw new GradleException("Failed to resolve version \"" + dep.getVersionId() + "\"!", e);
-			}
-
-			if (version == null) {
-				throw new GradleException(String.format("Failed to resolve version \"%s\"", dep.getVersionId()));
-			}
-
-			return new ProjectDependency(version.getId(), version.getProjectId(), null, dep.getDependencyType());
+			return resolver.version(dep.getProjectId(), dep.getVersionId()).handle((version, e) -> {
+				if (e != null) {
+					throw new GradleException("Failed to resolve version \"" + dep.getVersionId() + "\"!", e);
+				}
+				if (version == null) {
+					throw new GradleException(String.format("Failed to resolve version \"%s\"", dep.getVersionId()));
+				}
+				return new ProjectDependency(version.getId(), version.getProjectId(), null, dep.getDependencyType());
+			});
 		} else {
-			throw new GradleException("Dependency was not an instance of ModDependency or VersionDependency!");
+			CompletableFuture<ProjectDependency> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new GradleException("Dependency was not an instance of ModDependency or VersionDependency!"));
+			return failed;
 		}
 	}
 
@@ -0,0 +1,147 @@
+package com.modrinth.minotaur.dependencies;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import org.gradle.api.GradleException;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The contents of {@code modrinth.lock}, which pins the projects and versions that dependencies are declared with to
+ * their IDs. Written by the {@code modrinthLockDependencies} task and meant to be checked in, so publishing does not
+ * have to look any of them up again and always ends up with the same dependencies.
+ */
+@ApiStatus.Internal
+public class DependencyLock {
+	/**
+	 * The name of the lockfile, in the project directory.
+	 */
+	public static final String FILE_NAME = "modrinth.lock";
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+	/**
+	 * Project IDs by slug.
+	 */
+	private Map<String, String> projects = new TreeMap<>();
+
+	/**
+	 * Versions by version ID.
+	 */
+	private Map<String, LockedVersion> versions = new TreeMap<>();
+
+	/**
+	 * Versions by project and version number.
+	 */
+	@SerializedName("version_numbers")
+	private Map<String, Map<String, LockedVersion>> versionNumbers = new TreeMap<>();
+
+	/**
+	 * A version as it was resolved.
+	 */
+	static class LockedVersion {
+		private final String id;
+		@SerializedName("project_id")
+		private final String projectId;
+
+		LockedVersion(String id, String projectId) {
+			this.id = id;
+			this.projectId = projectId;
+		}
+
+		/**
+		 * @return the version's ID
+		 */
+		String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the ID of the project the version belongs to
+		 */
+		String getProjectId() {
+			return projectId;
+		}
+	}
+
+	/**
+	 * @param file the lockfile
+	 * @return the locked dependencies, or an empty lock if the file does not exist
+	 * @throws GradleException if the file cannot be read
+	 */
+	public static DependencyLock read(File file) {
+		if (!file.isFile()) {
+			return new DependencyLock();
+		}
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			DependencyLock lock = GSON.fromJson(reader, DependencyLock.class);
+			return lock == null ? new DependencyLock() : lock;
+		} catch (IOException | JsonParseException e) {
+			throw new GradleException(String.format("Failed to read %s, run the `modrinthLockDependencies` task to recreate it", file), e);
+		}
+	}
+
+	/**
+	 * @param file the lockfile, which is replaced
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void write(File file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			GSON.toJson(this, writer);
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * @return whether nothing is locked
+	 */
+	public synchronized boolean isEmpty() {
+		return projects.isEmpty() && versions.isEmpty() && versionNumbers.isEmpty();
+	}
+
+	/**
+	 * @param slug the slug or ID of a project
+	 * @return the locked project ID, or {@code null} if the project is not locked
+	 */
+	@Nullable
+	synchronized String projectId(String slug) {
+		return projects.get(slug);
+	}
+
+	/**
+	 * @param projectId the project the version number belongs to, or {@code null} if {@code versionId} is an ID
+	 * @param versionId the ID of a version, or its version number if a project is given
+	 * @return the locked version, or {@code null} if the version is not locked
+	 */
+	@Nullable
+	synchronized LockedVersion version(@Nullable String projectId, String versionId) {
+		if (projectId == null) {
+			return versions.get(versionId);
+		}
+		Map<String, LockedVersion> numbers = versionNumbers.get(projectId);
+		return numbers == null ? null : numbers.get(versionId);
+	}
+
+	synchronized void lockProject(String slug, String id) {
+		projects.put(slug, id);
+	}
+
+	synchronized void lockVersion(@Nullable String projectId, String versionId, LockedVersion version) {
+		if (projectId == null) {
+			versions.put(versionId, version);
+		} else {
+			versionNumbers.computeIfAbsent(projectId, key -> new TreeMap<>()).put(versionId, version);
+		}
+	}
+}
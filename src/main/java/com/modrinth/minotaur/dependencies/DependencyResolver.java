@@ -0,0 +1,205 @@
+package com.modrinth.minotaur.dependencies;
+
+import com.modrinth.minotaur.dependencies.DependencyLock.LockedVersion;
+import masecla.modrinth4j.main.ModrinthAPI;
+import masecla.modrinth4j.model.version.ProjectVersion;
+import masecla.modrinth4j.model.version.ProjectVersion.ProjectDependency;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Resolves {@link Dependency dependencies} to {@link ProjectDependency project dependencies} all at once, rather than
+ * waiting for each lookup before starting the next. Dependencies on the same slug or version share a single request,
+ * and those found in the {@link DependencyLock lock} are not looked up at all. The rest may come from a
+ * {@link LookupCache} shared with other builds.
+ */
+@ApiStatus.Internal
+public class DependencyResolver {
+	private static final Logger LOGGER = Logging.getLogger(DependencyResolver.class);
+
+	private final ModrinthAPI api;
+	private final DependencyLock lock;
+	@Nullable
+	private final LookupCache cache;
+	private final DependencyLock resolved = new DependencyLock();
+	private final Map<String, CompletableFuture<String>> projectIds = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<LockedVersion>> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * @param api {@link ModrinthAPI} instance
+	 */
+	public DependencyResolver(ModrinthAPI api) {
+		this(api, new DependencyLock(), null);
+	}
+
+	/**
+	 * @param api   {@link ModrinthAPI} instance
+	 * @param lock  the locked dependencies, which are used instead of looking them up
+	 * @param cache the cache to look dependencies up in before asking the API, if any
+	 */
+	public DependencyResolver(ModrinthAPI api, DependencyLock lock, @Nullable LookupCache cache) {
+		this.api = api;
+		this.lock = lock;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return every project and version resolved so far, as a lock
+	 */
+	public DependencyLock getResolved() {
+		return resolved;
+	}
+
+	/**
+	 * Resolves every dependency concurrently.
+	 *
+	 * @param dependencies the dependencies to resolve
+	 * @return the resolved dependencies, in the same order
+	 * @throws GradleException listing every dependency which could not be resolved
+	 */
+	public List<ProjectDependency> resolve(List<Dependency> dependencies) {
+		List<CompletableFuture<ProjectDependency>> futures = new ArrayList<>(dependencies.size());
+		for (Dependency dependency : dependencies) {
+			futures.add(dependency.toNew(this));
+		}
+
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException ignored) {
+			// Reported per dependency below
+		}
+
+		List<ProjectDependency> resolved = new ArrayList<>(dependencies.size());
+		List<String> errors = new ArrayList<>();
+		Throwable cause = null;
+		for (CompletableFuture<ProjectDependency> future : futures) {
+			try {
+				resolved.add(future.get());
+			} catch (ExecutionException e) {
+				Throwable error = e.getCause();
+				errors.add(error.getMessage());
+				if (cause == null) {
+					cause = error;
+				} else {
+					cause.addSuppressed(error);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GradleException("Interrupted while resolving dependencies", e);
+			}
+		}
+
+		if (errors.size() == 1 && cause instanceof GradleException) {
+			throw (GradleException) cause;
+		} else if (!errors.isEmpty()) {
+			throw new GradleException(String.format("Failed to resolve %d dependencies:%n - %s",
+				errors.size(), String.join(String.format("%n - "), errors)), cause);
+		}
+		return resolved;
+	}
+
+	/**
+	 * @param slug the slug or ID of a project
+	 * @return the project's ID, looked up once per slug unless it is locked
+	 */
+	CompletableFuture<String> projectId(String slug) {
+		return projectIds.computeIfAbsent(slug, key -> {
+			String locked = lock.projectId(key);
+			if (locked != null) {
+				resolved.lockProject(key, locked);
+				return CompletableFuture.completedFuture(locked);
+			}
+			warnUnlocked("project " + key);
+			Supplier<CompletableFuture<String>> lookup = () -> request(() -> api.projects().getProjectIdBySlug(key));
+			return (cache != null ? cache.projectId(key, lookup) : lookup.get()).thenApply(id -> {
+				if (id != null) {
+					resolved.lockProject(key, id);
+				}
+				return id;
+			});
+		});
+	}
+
+	/**
+	 * @param projectId the project the version number belongs to, or {@code null} if {@code versionId} is an ID
+	 * @param versionId the ID of a version, or its version number if a project is given
+	 * @return the version, looked up once per project and version unless it is locked
+	 */
+	CompletableFuture<LockedVersion> version(@Nullable String projectId, String versionId) {
+		// Neither an ID nor a slug can contain a line break, so the key is unambiguous
+		String key = projectId == null ? versionId : projectId + "\n" + versionId;
+		return versions.computeIfAbsent(key, k -> {
+			LockedVersion locked = lock.version(projectId, versionId);
+			if (locked != null) {
+				resolved.lockVersion(projectId, versionId, locked);
+				return CompletableFuture.completedFuture(locked);
+			}
+			warnUnlocked(projectId == null ? "version " + versionId : "version " + versionId + " of " + projectId);
+			Supplier<CompletableFuture<ProjectVersion>> lookup = () -> request(() -> projectId == null
+				? api.versions().getVersion(versionId)
+				: api.versions().getVersionByNumber(projectId, versionId));
+			CompletableFuture<LockedVersion> version = cache != null
+				? cache.version(projectId, versionId, lookup)
+				: lookup.get().thenApply(v -> v == null ? null : new LockedVersion(v.getId(), v.getProjectId()));
+			return version.thenApply(result -> {
+				if (result != null) {
+					resolved.lockVersion(projectId, versionId, result);
+				}
+				return result;
+			});
+		});
+	}
+
+	/**
+	 * Drops everything this resolver looked up from the cache, for when the IDs were rejected and may be outdated.
+	 * Locked dependencies are left alone, they only change when the lockfile does.
+	 */
+	public void invalidateCache() {
+		if (cache == null) {
+			return;
+		}
+		for (String slug : projectIds.keySet()) {
+			if (lock.projectId(slug) == null) {
+				cache.invalidateProject(slug);
+			}
+		}
+		for (String key : versions.keySet()) {
+			int separator = key.indexOf('\n');
+			String projectId = separator < 0 ? null : key.substring(0, separator);
+			String versionId = key.substring(separator + 1);
+			if (lock.version(projectId, versionId) == null) {
+				cache.invalidateVersion(projectId, versionId);
+			}
+		}
+	}
+
+	private void warnUnlocked(String dependency) {
+		// Without a lockfile everything is looked up, which is not worth warning about
+		if (!lock.isEmpty()) {
+			LOGGER.warn("The {} is not in {}, run the `modrinthLockDependencies` task to lock it", dependency, DependencyLock.FILE_NAME);
+		}
+	}
+
+	/**
+	 * Turns a request which fails before it is even sent into a failed future, so it is reported along with the rest.
+	 */
+	private static <T> CompletableFuture<T> request(Supplier<CompletableFuture<T>> request) {
+		try {
+			return request.get();
+		} catch (RuntimeException e) {
+			CompletableFuture<T> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+}
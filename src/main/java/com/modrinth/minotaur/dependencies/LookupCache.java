@@ -0,0 +1,167 @@
+package com.modrinth.minotaur.dependencies;
+
+import com.modrinth.minotaur.dependencies.DependencyLock.LockedVersion;
+import masecla.modrinth4j.model.version.ProjectVersion;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * On-disk cache of project IDs by slug and of versions by ID or version number, stored under the Gradle user home so
+ * every build on the machine shares it. Slugs rarely change and versions never do, but entries still expire after a
+ * while, and are dropped as soon as Modrinth no longer knows them.
+ * <p>
+ * Each entry is a file of its own, replaced atomically, so parallel builds can read and write the cache at the same
+ * time. The file's modification time is when the entry was looked up.
+ */
+@ApiStatus.Internal
+public class LookupCache {
+	private static final String SUFFIX = ".lookup";
+
+	private final Path directory;
+	private final String apiUrl;
+	private final long ttlMillis;
+
+	/**
+	 * @param gradleUserHome the Gradle user home directory
+	 * @param apiUrl         the API the lookups are made against, as IDs differ between e.g. production and staging
+	 * @param ttlHours       how many hours an entry is used for before it is looked up again
+	 */
+	public LookupCache(File gradleUserHome, String apiUrl, int ttlHours) {
+		this.directory = gradleUserHome.toPath().resolve("caches").resolve("minotaur").resolve("lookups");
+		this.apiUrl = apiUrl;
+		this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+	}
+
+	/**
+	 * @param slug   the slug or ID of a project
+	 * @param lookup looks up the project's ID if it is not cached
+	 * @return the project's ID, or {@code null} if there is no such project
+	 */
+	public CompletableFuture<String> projectId(String slug, Supplier<CompletableFuture<String>> lookup) {
+		String key = key("project", slug);
+		String cached = get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+		// A project which is not found, or cannot be looked up, is not cached
+		return lookup.get().whenComplete((id, e) -> store(key, e == null ? id : null));
+	}
+
+	/**
+	 * Forgets a project ID, for when it turns out to no longer exist.
+	 *
+	 * @param slug the slug or ID of a project
+	 */
+	public void invalidateProject(String slug) {
+		store(key("project", slug), null);
+	}
+
+	/**
+	 * @param projectId the project the version number belongs to, or {@code null} if {@code versionId} is an ID
+	 * @param versionId the ID of a version, or its version number if a project is given
+	 * @param lookup    looks up the version if it is not cached
+	 * @return the version, or {@code null} if there is no such version
+	 */
+	CompletableFuture<LockedVersion> version(@Nullable String projectId, String versionId,
+		Supplier<CompletableFuture<ProjectVersion>> lookup) {
+		String key = projectId == null ? key("version", versionId) : key("version", projectId, versionId);
+		String cached = get(key);
+		int separator = cached == null ? -1 : cached.indexOf(' ');
+		if (separator > 0) {
+			return CompletableFuture.completedFuture(
+				new LockedVersion(cached.substring(0, separator), cached.substring(separator + 1)));
+		}
+		// Neither ID can contain a space
+		return lookup.get()
+			.whenComplete((version, e) -> store(key, e == null && version != null
+				? version.getId() + " " + version.getProjectId() : null))
+			.thenApply(version -> version == null ? null : new LockedVersion(version.getId(), version.getProjectId()));
+	}
+
+	/**
+	 * Forgets a version, for when it turns out to no longer exist.
+	 *
+	 * @param projectId the project the version number belongs to, or {@code null} if {@code versionId} is an ID
+	 * @param versionId the ID of a version, or its version number if a project is given
+	 */
+	void invalidateVersion(@Nullable String projectId, String versionId) {
+		store(projectId == null ? key("version", versionId) : key("version", projectId, versionId), null);
+	}
+
+	/**
+	 * @param key the entry's key
+	 * @return the entry, or {@code null} if it is missing, expired or being replaced
+	 */
+	@Nullable
+	private String get(String key) {
+		Path entry = directory.resolve(key);
+		try {
+			if (System.currentTimeMillis() - Files.getLastModifiedTime(entry).toMillis() > ttlMillis) {
+				return null;
+			}
+			String value = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+			return value.isEmpty() ? null : value;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores an entry, or removes it if the lookup found nothing. Failing to do either only costs another lookup, so
+	 * errors are ignored.
+	 */
+	private void store(String key, @Nullable String value) {
+		Path entry = directory.resolve(key);
+		try {
+			if (value == null) {
+				Files.deleteIfExists(entry);
+				return;
+			}
+			Files.createDirectories(directory);
+			// Write to a temporary file first so that concurrent builds never see a half-written entry
+			Path temp = Files.createTempFile(directory, "lookup", ".tmp");
+			try {
+				Files.write(temp, value.getBytes(StandardCharsets.UTF_8));
+				Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException ignored) {
+		}
+	}
+
+	/**
+	 * @return the file name of the entry, which is hashed as slugs and version numbers may contain anything
+	 */
+	private String key(String... parts) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(apiUrl.getBytes(StandardCharsets.UTF_8));
+		for (String part : parts) {
+			digest.update((byte) '\n');
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.append(SUFFIX).toString();
+	}
+}
@@ -0,0 +1,140 @@
+package com.modrinth.minotaur.scanner;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mod or plugin metadata picked up from the descriptor files of a jar while it is being read: {@code fabric.mod.json},
+ * {@code quilt.mod.json}, {@code META-INF/mods.toml}, {@code META-INF/neoforge.mods.toml} and {@code plugin.yml}.
+ * Only the loaders and the id and version of the first descriptor found are kept. A {@code META-INF/mods.toml} names no
+ * loader, as both Forge and NeoForge before 1.20.5 use it.
+ */
+public class ArtifactMetadata {
+	private static final Pattern TOML_MOD_ID = Pattern.compile("^\\s*modId\\s*=\\s*\"([^\"]*)\"", Pattern.MULTILINE);
+	private static final Pattern TOML_VERSION = Pattern.compile("^\\s*version\\s*=\\s*\"([^\"]*)\"", Pattern.MULTILINE);
+	private static final Pattern YAML_NAME = Pattern.compile("^name:\\s*['\"]?([^'\"\\r\\n]*)", Pattern.MULTILINE);
+	private static final Pattern YAML_VERSION = Pattern.compile("^version:\\s*['\"]?([^'\"\\r\\n]*)", Pattern.MULTILINE);
+
+	private final Set<String> loaders = new LinkedHashSet<>();
+	@Nullable
+	private String id = null;
+	@Nullable
+	private String version = null;
+
+	/**
+	 * @param entryName name of an entry at the root of a jar
+	 * @return whether the entry is a descriptor this class understands
+	 */
+	static boolean isDescriptor(String entryName) {
+		switch (entryName) {
+			case "fabric.mod.json":
+			case "quilt.mod.json":
+			case "META-INF/mods.toml":
+			case "META-INF/neoforge.mods.toml":
+			case "plugin.yml":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @param entryName name of a descriptor, see {@link #isDescriptor(String)}
+	 * @param contents  the descriptor's contents
+	 */
+	void read(String entryName, byte[] contents) {
+		String text = new String(contents, StandardCharsets.UTF_8);
+		switch (entryName) {
+			case "fabric.mod.json":
+				loaders.add("fabric");
+				readJson(text, null);
+				break;
+			case "quilt.mod.json":
+				loaders.add("quilt");
+				readJson(text, "quilt_loader");
+				break;
+			case "META-INF/mods.toml":
+				readText(text, TOML_MOD_ID, TOML_VERSION);
+				break;
+			case "META-INF/neoforge.mods.toml":
+				loaders.add("neoforge");
+				readText(text, TOML_MOD_ID, TOML_VERSION);
+				break;
+			case "plugin.yml":
+				loaders.addAll(Arrays.asList("bukkit", "spigot", "paper"));
+				readText(text, YAML_NAME, YAML_VERSION);
+				break;
+		}
+	}
+
+	private void readJson(String text, @Nullable String section) {
+		try {
+			JsonObject json = new Gson().fromJson(text, JsonObject.class);
+			if (json != null && section != null) {
+				JsonElement element = json.get(section);
+				json = element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+			}
+			if (json != null) {
+				identify(string(json, "id"), string(json, "version"));
+			}
+		} catch (JsonParseException e) {
+			// Still tells us the loader
+		}
+	}
+
+	@Nullable
+	private static String string(JsonObject json, String key) {
+		JsonElement element = json.get(key);
+		return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+	}
+
+	private void readText(String text, Pattern idPattern, Pattern versionPattern) {
+		Matcher id = idPattern.matcher(text);
+		Matcher version = versionPattern.matcher(text);
+		identify(id.find() ? id.group(1).trim() : null, version.find() ? version.group(1).trim() : null);
+	}
+
+	private void identify(@Nullable String id, @Nullable String version) {
+		if (this.id == null && id != null && !id.isEmpty()) {
+			this.id = id;
+			// Placeholders like ${file.jarVersion} are filled in at runtime, so they say nothing
+			this.version = version == null || version.isEmpty() || version.startsWith("${") ? null : version;
+		}
+	}
+
+	/**
+	 * @return The loaders the descriptors found are meant for, in the order they were found.
+	 */
+	public List<String> getLoaders() {
+		return Collections.unmodifiableList(new ArrayList<>(loaders));
+	}
+
+	/**
+	 * @return The mod id or plugin name from the first descriptor, if any.
+	 */
+	@Nullable
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return The version from the first descriptor, if it has a concrete one.
+	 */
+	@Nullable
+	public String getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,118 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Byte arrays that zip entries are read into, reused from one class to the next instead of allocated for each.
+ * <p>
+ * Buffers are usually taken by the thread reading the zip and handed back by whichever thread scanned the class, so
+ * they are kept in a fixed set of slots rather than per thread. A thread starts looking at a slot picked from its id,
+ * which keeps threads from fighting over the same slots, and allocates a new buffer if every slot is empty.
+ */
+final class BufferPool {
+	static final BufferPool SHARED = new BufferPool(64);
+
+	private static final int INITIAL_SIZE = 16384;
+	// Larger buffers are still used, just not kept around afterwards
+	private static final int MAX_POOLED_SIZE = 1 << 20;
+	// Sizes come from the zip, so a forged one may only make the first buffer this large
+	private static final int MAX_SIZE_HINT = 1 << 20;
+	/**
+	 * The most bytes an entry may inflate to. No class file comes close, so a larger entry is a zip bomb.
+	 */
+	static final int MAX_ENTRY_SIZE = 64 << 20;
+
+	private final AtomicReferenceArray<Buffer> slots;
+
+	BufferPool(int slots) {
+		this.slots = new AtomicReferenceArray<>(slots);
+	}
+
+	/**
+	 * The bytes of one entry, valid from index 0 up to {@link #length}.
+	 */
+	static final class Buffer {
+		byte[] bytes;
+		int length;
+
+		private Buffer(int size) {
+			this.bytes = new byte[size];
+		}
+	}
+
+	/**
+	 * Reads what is left of a stream into a buffer from the pool, which has to be {@link #release released} once the
+	 * bytes are no longer needed.
+	 *
+	 * @param in   the stream, which is not closed
+	 * @param size how many bytes the stream is expected to hold, or -1 if that is not known. This is only a hint, the
+	 *             buffer grows as the bytes arrive.
+	 * @return the buffer holding the bytes
+	 * @throws IOException if the stream could not be read, or holds more than {@link #MAX_ENTRY_SIZE} bytes
+	 */
+	Buffer read(InputStream in, long size) throws IOException {
+		Buffer buffer = acquire();
+		buffer.length = 0;
+		if (size > buffer.bytes.length && buffer.bytes.length < MAX_SIZE_HINT) {
+			buffer.bytes = new byte[(int) Math.min(size, MAX_SIZE_HINT)];
+		}
+
+		int n;
+		while ((n = in.read(buffer.bytes, buffer.length, buffer.bytes.length - buffer.length)) != -1) {
+			buffer.length += n;
+			if (buffer.length < buffer.bytes.length) {
+				continue;
+			}
+			// A full buffer is normally the whole entry, but sizes from a zip are only trusted so far
+			int next = in.read();
+			if (next == -1) {
+				break;
+			}
+			grow(buffer);
+			buffer.bytes[buffer.length++] = (byte) next;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Hands a buffer back to the pool. It must not be used afterwards.
+	 *
+	 * @param buffer a buffer from {@link #read(InputStream, long)}
+	 */
+	void release(Buffer buffer) {
+		if (buffer.bytes.length > MAX_POOLED_SIZE) {
+			return;
+		}
+		int start = start();
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.compareAndSet((start + i) % slots.length(), null, buffer)) {
+				return;
+			}
+		}
+	}
+
+	private Buffer acquire() {
+		int start = start();
+		for (int i = 0; i < slots.length(); i++) {
+			Buffer buffer = slots.getAndSet((start + i) % slots.length(), null);
+			if (buffer != null) {
+				return buffer;
+			}
+		}
+		return new Buffer(INITIAL_SIZE);
+	}
+
+	private int start() {
+		return (int) (Thread.currentThread().getId() % slots.length());
+	}
+
+	private static void grow(Buffer buffer) throws IOException {
+		if (buffer.bytes.length >= MAX_ENTRY_SIZE) {
+			throw new IOException("Zip entry inflates to more than " + MAX_ENTRY_SIZE + " bytes");
+		}
+		buffer.bytes = Arrays.copyOf(buffer.bytes, (int) Math.min(MAX_ENTRY_SIZE, buffer.bytes.length * 2L));
+	}
+}
@@ -0,0 +1,205 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Remembers which classes were found clean, so that a class which gets past the constant pool prefilter does not have
+ * to be parsed again the next time it shows up. Like {@link KnownCleanClasses}, classes are identified by the first 128
+ * bits of the SHA-256 of the class file, so a class only counts as known if its contents are, whatever the zip claims
+ * about them.
+ * <p>
+ * The hashes are persisted to a single file shared by every build using the same Gradle user home, and kept in memory
+ * as a sorted array which is searched by bisection. Classes found clean during a task are collected separately and
+ * only written by {@link #save()}, once the task is done. Writers merge their hashes with whatever is on disk while
+ * holding a file lock, and replace the file atomically, so concurrent builds neither lose nor corrupt each other's
+ * entries.
+ */
+class ClassVerdictCache {
+	private static final int MAGIC = 0x4D435648; // MCVH
+	private static final int MAX_ENTRIES = 1 << 18;
+	// FileLock is held by the whole JVM, so threads have to take turns before asking for it
+	private static final Object SAVE_LOCK = new Object();
+
+	private final Path directory;
+	private final Path file;
+	// Pairs of the high and low 64 bits of each hash, sorted as unsigned numbers
+	private volatile long[] known;
+	// Which of the known hashes were seen, so they are the last to be trimmed
+	private final BitSet used = new BitSet();
+	// Pairs of hashes found clean since the cache was loaded, in no particular order
+	private long[] added = new long[64];
+	private int addedCount = 0;
+
+	/**
+	 * @param directory    the directory to keep the cache file in
+	 * @param signaturesId the signatures the classes were scanned for, as a clean class may match other ones
+	 */
+	ClassVerdictCache(Path directory, String signaturesId) {
+		this.directory = directory;
+		this.file = directory.resolve("classes-v" + ScanCache.VERSION + "-" + signaturesId + ".bin");
+	}
+
+	/**
+	 * @param hash the class file's hash, from {@link KnownCleanClasses#hash(byte[], int)}
+	 * @return whether a class with the same contents was found clean before
+	 */
+	boolean isKnownClean(long[] hash) {
+		long[] known = load();
+		int index = KnownCleanClasses.indexOf(known, hash[0], hash[1]);
+		if (index < 0) {
+			return false;
+		}
+		synchronized (used) {
+			used.set(index);
+		}
+		return true;
+	}
+
+	/**
+	 * @param hash the hash of a class file which was scanned and found clean
+	 */
+	synchronized void markClean(long[] hash) {
+		if (addedCount * 2 == added.length) {
+			added = Arrays.copyOf(added, added.length * 2);
+		}
+		added[addedCount * 2] = hash[0];
+		added[addedCount * 2 + 1] = hash[1];
+		addedCount++;
+	}
+
+	/**
+	 * Merges the classes found clean since the last call into the cache file.
+	 *
+	 * @throws IOException if the cache file could not be written
+	 */
+	void save() throws IOException {
+		long[] added;
+		synchronized (this) {
+			if (addedCount == 0) {
+				return;
+			}
+			added = KnownCleanClasses.sort(this.added, addedCount);
+			addedCount = 0;
+		}
+		long[] seen = usedHashes();
+
+		synchronized (SAVE_LOCK) {
+			Files.createDirectories(directory);
+			try (FileChannel channel = FileChannel.open(directory.resolve("classes.lock"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				// Released when the channel is closed
+				channel.lock();
+				long[] merged = merge(merge(read(), added), seen);
+				if (merged.length / 2 > MAX_ENTRIES) {
+					// Keep what this build needed, dropping everything else
+					merged = merge(added, seen);
+				}
+
+				Path temp = Files.createTempFile(directory, "classes", ".tmp");
+				try {
+					try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+						int count = Math.min(merged.length / 2, MAX_ENTRIES);
+						out.writeInt(MAGIC);
+						out.writeInt(count);
+						for (int i = 0; i < count * 2; i++) {
+							out.writeLong(merged[i]);
+						}
+					}
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(temp);
+				}
+			}
+		}
+	}
+
+	private long[] load() {
+		long[] known = this.known;
+		if (known == null) {
+			synchronized (this) {
+				known = this.known;
+				if (known == null) {
+					this.known = known = read();
+				}
+			}
+		}
+		return known;
+	}
+
+	/**
+	 * @return the known hashes which were seen, sorted
+	 */
+	private long[] usedHashes() {
+		long[] known = load();
+		synchronized (used) {
+			long[] hashes = new long[used.cardinality() * 2];
+			int count = 0;
+			for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+				hashes[count * 2] = known[i * 2];
+				hashes[count * 2 + 1] = known[i * 2 + 1];
+				count++;
+			}
+			return hashes;
+		}
+	}
+
+	/**
+	 * @return the hashes in the cache file, sorted, or none if there is no valid file
+	 */
+	private long[] read() {
+		if (!Files.exists(file)) {
+			return new long[0];
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				return new long[0];
+			}
+			int count = in.readInt();
+			if (count < 0 || count > MAX_ENTRIES) {
+				return new long[0];
+			}
+			long[] hashes = new long[count * 2];
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = in.readLong();
+			}
+			return hashes;
+		} catch (IOException e) {
+			// A broken cache only means more classes get scanned
+			return new long[0];
+		}
+	}
+
+	/**
+	 * @return the hashes of both sorted arrays, sorted and without duplicates
+	 */
+	private static long[] merge(long[] a, long[] b) {
+		long[] merged = new long[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < a.length || j < b.length) {
+			int cmp = i == a.length ? 1 : j == b.length ? -1
+				: KnownCleanClasses.compare(a[i], a[i + 1], b[j], b[j + 1]);
+			long[] from = cmp <= 0 ? a : b;
+			int index = cmp <= 0 ? i : j;
+			if (count == 0 || KnownCleanClasses.compare(merged[count - 2], merged[count - 1], from[index], from[index + 1]) != 0) {
+				merged[count] = from[index];
+				merged[count + 1] = from[index + 1];
+				count += 2;
+			}
+			if (cmp <= 0) {
+				i += 2;
+			} else {
+				j += 2;
+			}
+		}
+		return Arrays.copyOf(merged, count);
+	}
+}
@@ -0,0 +1,287 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Cheap first stage of the scanner which only walks the constant pool of a class file. Every signature needs
+ * certain constants to be present, so classes missing them for all signatures are rejected without ever being handed
+ * to {@link org.objectweb.asm.ClassReader}.
+ * <p>
+ * The requirements are derived from the signatures themselves: every owner, name, descriptor and string constant
+ * of a signature has to appear in the constant pool. Contiguous signatures additionally contribute the longest run of
+ * their instructions whose bytecode is known up front, which has to appear somewhere after the constant pool.
+ * <p>
+ * Anything this filter does not understand is let through, so the full parse still gets the final say.
+ */
+final class ConstantPoolFilter {
+	// required[length] holds every required string of that length in modified UTF-8, with its id in requiredIds
+	private final byte[][][] required;
+	private final int[][] requiredIds;
+	private final int requiredCount;
+	// per signature: the ids of the strings it needs, and the bytecode it needs or null
+	private final int[][] signatureStrings;
+	private final byte[][] signatureCode;
+	private final byte[][] constants;
+	private final boolean passAll;
+
+	/**
+	 * @param signatures the signatures to filter for
+	 * @param constants  substrings of string constants that are reported on their own
+	 */
+	ConstantPoolFilter(List<Signature> signatures, List<String> constants) {
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		signatureStrings = new int[signatures.size()][];
+		signatureCode = new byte[signatures.size()][];
+		boolean passAll = false;
+
+		for (int k = 0; k < signatures.size(); k++) {
+			Signature signature = signatures.get(k);
+			Set<Integer> strings = new TreeSet<>();
+			for (Signature.Insn insn : signature.insns) {
+				for (String string : new String[] {insn.owner, insn.name, insn.desc, insn.constant}) {
+					if (string != null) {
+						strings.add(ids.computeIfAbsent(string, s -> ids.size()));
+					}
+				}
+			}
+			signatureStrings[k] = strings.stream().mapToInt(Integer::intValue).toArray();
+			if (signature.mode == Signature.Mode.CONTIGUOUS) {
+				signatureCode[k] = longestKnownCode(signature);
+			}
+			if (signatureStrings[k].length == 0 && signatureCode[k] == null) {
+				// Nothing to look for, so every class could match this signature
+				passAll = true;
+			}
+		}
+
+		int maxLength = 0;
+		List<byte[]> encoded = new ArrayList<>();
+		for (String string : ids.keySet()) {
+			byte[] bytes = modifiedUtf8(string);
+			encoded.add(bytes);
+			maxLength = Math.max(maxLength, bytes.length);
+		}
+		required = new byte[maxLength + 1][0][];
+		requiredIds = new int[maxLength + 1][0];
+		for (int id = 0; id < encoded.size(); id++) {
+			byte[] bytes = encoded.get(id);
+			int length = bytes.length;
+			required[length] = Arrays.copyOf(required[length], required[length].length + 1);
+			required[length][required[length].length - 1] = bytes;
+			requiredIds[length] = Arrays.copyOf(requiredIds[length], requiredIds[length].length + 1);
+			requiredIds[length][requiredIds[length].length - 1] = id;
+		}
+		requiredCount = encoded.size();
+
+		this.constants = new byte[constants.size()][];
+		for (int i = 0; i < constants.size(); i++) {
+			this.constants[i] = modifiedUtf8(constants.get(i));
+		}
+		this.passAll = passAll;
+	}
+
+	/**
+	 * @param clazz  a buffer starting with the raw class file
+	 * @param length how many bytes of the buffer belong to the class file
+	 * @return {@code false} if the class cannot match any signature, {@code true} if it has to be parsed
+	 */
+	boolean mayMatch(byte[] clazz, int length) {
+		if (passAll || length < 10 || readInt(clazz, 0) != 0xCAFEBABE) {
+			return true;
+		}
+
+		boolean[] found = new boolean[requiredCount];
+		int count = readUnsignedShort(clazz, 8);
+		int offset = 10;
+		try {
+			for (int i = 1; i < count; i++) {
+				// Whatever follows the class in the buffer is left over from an earlier one
+				if (offset >= length) {
+					return true;
+				}
+				int tag = clazz[offset];
+				switch (tag) {
+					case 1: // Utf8
+						int utf8Length = readUnsignedShort(clazz, offset + 1);
+						int start = offset + 3;
+						if (start + utf8Length > length) {
+							return true;
+						}
+						if (utf8Length < required.length) {
+							byte[][] candidates = required[utf8Length];
+							for (int c = 0; c < candidates.length; c++) {
+								if (equals(clazz, start, candidates[c])) {
+									found[requiredIds[utf8Length][c]] = true;
+								}
+							}
+						}
+						for (byte[] constant : constants) {
+							if (indexOf(clazz, start, start + utf8Length, constant) >= 0) {
+								return true;
+							}
+						}
+						offset = start + utf8Length;
+						break;
+					case 7: // Class
+					case 8: // String
+					case 16: // MethodType
+					case 19: // Module
+					case 20: // Package
+						offset += 3;
+						break;
+					case 15: // MethodHandle
+						offset += 4;
+						break;
+					case 3: // Integer
+					case 4: // Float
+					case 9: // Fieldref
+					case 10: // Methodref
+					case 11: // InterfaceMethodref
+					case 12: // NameAndType
+					case 17: // Dynamic
+					case 18: // InvokeDynamic
+						offset += 5;
+						break;
+					case 5: // Long
+					case 6: // Double
+						offset += 9;
+						i++;
+						break;
+					default:
+						return true;
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return true;
+		}
+
+		outer:
+		for (int k = 0; k < signatureStrings.length; k++) {
+			for (int id : signatureStrings[k]) {
+				if (!found[id]) {
+					continue outer;
+				}
+			}
+			if (signatureCode[k] == null || indexOf(clazz, offset, length, signatureCode[k]) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the longest run of instructions in a contiguous signature that always shows up as the same bytes: one
+	 * instruction, followed by instructions which have no operands at all. Anything in between two instructions with
+	 * operands could be another instruction with the same opcode, so runs stop there.
+	 */
+	private static byte[] longestKnownCode(Signature signature) {
+		byte[] longest = null;
+		for (int start = 0; start < signature.insns.length; start++) {
+			byte[] first = knownCode(signature.insns[start]);
+			if (first == null) {
+				continue;
+			}
+			ByteArrayOutputStream run = new ByteArrayOutputStream();
+			run.write(first, 0, first.length);
+			for (int j = start + 1; j < signature.insns.length; j++) {
+				Signature.Insn insn = signature.insns[j];
+				if (!isSingleByte(insn.opcode) || !insn.matchesAnyOperands()) {
+					break;
+				}
+				run.write(insn.opcode);
+			}
+			if (longest == null || run.size() > longest.length) {
+				longest = run.toByteArray();
+			}
+		}
+		// A single byte shows up in pretty much every class, so it is not worth looking for
+		return longest != null && longest.length > 1 ? longest : null;
+	}
+
+	private static byte[] knownCode(Signature.Insn insn) {
+		if (isSingleByte(insn.opcode) && insn.matchesAnyOperands()) {
+			return new byte[] {(byte) insn.opcode};
+		}
+		if (insn.owner != null || insn.name != null || insn.desc != null || insn.constant != null || insn.operand == null) {
+			return null;
+		}
+		int operand = insn.operand;
+		switch (insn.opcode) {
+			case BIPUSH:
+			case NEWARRAY:
+				return new byte[] {(byte) insn.opcode, (byte) operand};
+			case SIPUSH:
+				return new byte[] {(byte) insn.opcode, (byte) (operand >> 8), (byte) operand};
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return whether the opcode is an instruction without operands, which ASM reports exactly as it is encoded
+	 */
+	private static boolean isSingleByte(int opcode) {
+		return opcode >= NOP && opcode <= DCONST_1
+			|| opcode >= IALOAD && opcode <= SALOAD
+			|| opcode >= IASTORE && opcode <= SASTORE
+			|| opcode >= POP && opcode <= LXOR
+			|| opcode >= I2L && opcode <= DCMPG
+			|| opcode >= IRETURN && opcode <= RETURN
+			|| opcode == ARRAYLENGTH || opcode == ATHROW
+			|| opcode == MONITORENTER || opcode == MONITOREXIT;
+	}
+
+	private static boolean equals(byte[] clazz, int start, byte[] expected) {
+		for (int i = 0; i < expected.length; i++) {
+			if (clazz[start + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] clazz, int from, int to, byte[] pattern) {
+		outer:
+		for (int i = from; i <= to - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (clazz[i + j] != pattern[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static int readUnsignedShort(byte[] b, int offset) {
+		return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+	}
+
+	private static int readInt(byte[] b, int offset) {
+		return (readUnsignedShort(b, offset) << 16) | readUnsignedShort(b, offset + 2);
+	}
+
+	/**
+	 * Encodes a string the way the class file format stores it, see JVMS 4.4.7.
+	 */
+	private static byte[] modifiedUtf8(String s) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != 0 && c < 0x80) {
+				out.write(c);
+			} else if (c < 0x800) {
+				out.write(0xC0 | (c >> 6));
+				out.write(0x80 | (c & 0x3F));
+			} else {
+				out.write(0xE0 | (c >> 12));
+				out.write(0x80 | ((c >> 6) & 0x3F));
+				out.write(0x80 | (c & 0x3F));
+			}
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,37 @@
+package com.modrinth.minotaur.scanner;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * Logs what the scanner has to say to a Gradle logger. Only loaded when the scanner is called from Gradle.
+ */
+public final class GradleScanLogger implements ScanLogger {
+	private final Logger logger;
+
+	/**
+	 * @param logger the Gradle logger to log to
+	 */
+	public GradleScanLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	@Override
+	public void debug(String message, Object... args) {
+		logger.debug(message, args);
+	}
+
+	@Override
+	public void info(String message, Object... args) {
+		logger.info(message, args);
+	}
+
+	@Override
+	public void warn(String message, Object... args) {
+		logger.warn(message, args);
+	}
+
+	@Override
+	public void error(String message, Object... args) {
+		logger.error(message, args);
+	}
+}
@@ -0,0 +1,177 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Streaming matcher for a set of {@link Signatures}. Instructions are fed to a {@link SignatureMatcher} as
+ * {@link org.objectweb.asm.ClassReader} emits them, so no {@link org.objectweb.asm.tree.ClassNode} or
+ * {@link org.objectweb.asm.tree.InsnList} is ever built. String constants are checked against the signatures'
+ * constant patterns along the way.
+ */
+class InfectionClassVisitor extends ClassVisitor {
+	private final Signatures signatures;
+	private final SignatureMatcher matcher;
+	@Nullable
+	private String match = null;
+	@Nullable
+	private String className = null;
+	@Nullable
+	private String matchMethod = null;
+
+	InfectionClassVisitor(Signatures signatures) {
+		super(ASM9);
+		this.signatures = signatures;
+		this.matcher = signatures.matcher;
+	}
+
+	/**
+	 * @return whether any method of the visited class matched one of the signatures
+	 */
+	boolean isInfected() {
+		return match != null;
+	}
+
+	/**
+	 * @param entry the path of the class file within the scanned file
+	 * @return where the visited class matched, or {@code null} if it did not
+	 */
+	@Nullable
+	ScanMatch getMatch(String entry) {
+		return match == null ? null : new ScanMatch(match, entry, className != null ? className : entry, matchMethod);
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		className = name;
+	}
+
+	@Override
+	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+		constant(value);
+		return null;
+	}
+
+	private void constant(@Nullable Object value) {
+		if (match == null && value instanceof String && signatures.constants.length > 0) {
+			String string = (String) value;
+			for (String constant : signatures.constants) {
+				if (string.contains(constant)) {
+					match = "constant \"" + constant + "\"";
+					return;
+				}
+			}
+		}
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+		// Once a match has been found there is no need to read the code of any further methods
+		return match != null ? null : new SignatureMethodVisitor(name + descriptor);
+	}
+
+	private class SignatureMethodVisitor extends MethodVisitor {
+		private final long[] state = matcher.newState();
+		private final String method;
+
+		SignatureMethodVisitor(String method) {
+			super(ASM9);
+			this.method = method;
+		}
+
+		private void insn(int opcode, String owner, String name, String desc, int operand, Object constant) {
+			if (match == null) {
+				Signature signature = matcher.step(state, opcode, owner, name, desc, operand, constant);
+				if (signature != null) {
+					match = signature.name;
+					matchMethod = method;
+				}
+			}
+		}
+
+		private void insn(int opcode, String owner, String name, String desc) {
+			insn(opcode, owner, name, desc, 0, null);
+		}
+
+		private void insn(int opcode) {
+			insn(opcode, null, null, null);
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+			insn(opcode);
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand) {
+			insn(opcode, null, null, null, operand, null);
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int varIndex) {
+			insn(opcode, null, null, null, varIndex, null);
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type) {
+			insn(opcode, null, null, type);
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+			insn(opcode, owner, name, descriptor);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+			insn(opcode, owner, name, descriptor);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+			insn(INVOKEDYNAMIC, null, name, descriptor);
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label) {
+			insn(opcode);
+		}
+
+		@Override
+		public void visitLdcInsn(Object value) {
+			insn(LDC, null, null, null, 0, value);
+			if (match == null) {
+				constant(value);
+				if (match != null) {
+					matchMethod = method;
+				}
+			}
+		}
+
+		@Override
+		public void visitIincInsn(int varIndex, int increment) {
+			insn(IINC);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+			insn(TABLESWITCH);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+			insn(LOOKUPSWITCH);
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+			insn(MULTIANEWARRAY, null, null, descriptor);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+
+/**
+ * Everything learned about a file by {@link JarInfectionScanner#ingest}.
+ */
+public class IngestResult {
+	private final File file;
+	private final String sha1;
+	private final String sha512;
+	private final String sha256;
+	private final boolean scanned;
+	// null if scanning failed
+	@Nullable
+	private final Boolean infected;
+	private final ArtifactMetadata metadata;
+	private final ScanStatistics statistics;
+	@Nullable
+	private final ScanMatch match;
+
+	IngestResult(File file, String sha1, String sha512, String sha256, boolean scanned,
+		@Nullable Boolean infected, ArtifactMetadata metadata, ScanStatistics statistics, @Nullable ScanMatch match) {
+		this.file = file;
+		this.sha1 = sha1;
+		this.sha512 = sha512;
+		this.sha256 = sha256;
+		this.scanned = scanned;
+		this.infected = infected;
+		this.metadata = metadata;
+		this.statistics = statistics;
+		this.match = match;
+	}
+
+	/**
+	 * @return The file that was read.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The lowercase hex SHA-1 of the file.
+	 */
+	public String getSha1() {
+		return sha1;
+	}
+
+	/**
+	 * @return The lowercase hex SHA-512 of the file.
+	 */
+	public String getSha512() {
+		return sha512;
+	}
+
+	/**
+	 * @return The lowercase hex SHA-256 of the file.
+	 */
+	public String getSha256() {
+		return sha256;
+	}
+
+	/**
+	 * @return Whether the file could be scanned at all, which it cannot if it is not a zip file.
+	 */
+	public boolean isScanned() {
+		return scanned;
+	}
+
+	/**
+	 * @return Whether the file is infected.
+	 */
+	public boolean isInfected() {
+		return infected != null && infected;
+	}
+
+	/**
+	 * @return The mod or plugin metadata found in the file.
+	 */
+	public ArtifactMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * @return How much of the file was scanned and how long it took.
+	 */
+	public ScanStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return Where a signature matched if the file is infected, otherwise {@code null}.
+	 */
+	@Nullable
+	public ScanMatch getMatch() {
+		return match;
+	}
+
+	/**
+	 * @return Whether the result holds for every scan of the same contents, which it does not if scanning failed.
+	 */
+	public boolean isConclusive() {
+		return !scanned || infected != null;
+	}
+
+	/**
+	 * @return the same result for another file with identical contents
+	 */
+	IngestResult withFile(File file) {
+		return new IngestResult(file, sha1, sha512, sha256, scanned, infected, metadata, statistics, match);
+	}
+}
@@ -1,13 +1,24 @@
 package com.modrinth.minotaur.scanner;
 
-import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.*;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -18,31 +29,568 @@ import static org.objectweb.asm.Opcodes.*;
  * with permission
  */
 public class JarInfectionScanner {
+	// Smaller files are read through ZipFile, which is just as fast for them and leaves no mapping behind
+	private static final long MAPPED_ZIP_MIN_SIZE = 32L << 20;
+	// Larger nested jars are spilled to a temporary file to be read from their central directory
+	private static final int NESTED_IN_MEMORY_MAX_SIZE = 8 << 20;
 
 	public static void scan(Logger logger, ZipFile file) {
+		scan(logger, file, 1);
+	}
+
+	/**
+	 * Scans every class in the given file, spreading the work over {@code parallelism} threads.
+	 * Remaining classes are skipped as soon as one of them matches.
+	 *
+	 * @param logger      logger to report the result to
+	 * @param file        the jar to scan
+	 * @param parallelism how many classes may be scanned at once; {@code 1} scans on the calling thread
+	 */
+	public static void scan(Logger logger, ZipFile file, int parallelism) {
+		scanZip(ZipSource.of(file), new Scan(new GradleScanLogger(logger), new ScanOptions().parallelism(parallelism), null));
+	}
+
+	/**
+	 * Same as {@link #scan(ScanLogger, File, ScanOptions)}, logging to a Gradle logger.
+	 */
+	public static boolean scan(Logger logger, File file, ScanOptions options) throws IOException {
+		return scan(new GradleScanLogger(logger), file, options);
+	}
+
+	/**
+	 * Scans a file like {@link #scan(Logger, ZipFile, int)}, including any jars nested inside it. If the options
+	 * carry a {@link ScanCache}, the verdict of an earlier scan of identical content is reused, and completed scans
+	 * are written back to the cache.
+	 *
+	 * @param logger  logger to report the result to
+	 * @param file    the jar to scan
+	 * @param options how to scan the file
+	 * @return whether the file is infected; a file which could not be scanned completely counts as clean
+	 * @throws IOException           if the file cannot be read or is not a zip file
+	 * @throws CancellationException if the options' cancellation check fired before the scan was done
+	 */
+	public static boolean scan(ScanLogger logger, File file, ScanOptions options) throws IOException {
+		return scan(logger, file, options, options.getCache() != null ? ScanCache.sha256(file) : "");
+	}
+
+	/**
+	 * Scans a file like {@link #scan(ScanLogger, File, ScanOptions)}, but caches its verdict under the given key
+	 * instead of the file's SHA-256, for callers which can tell the file's contents apart without reading it.
+	 *
+	 * @param logger     logger to report the result to
+	 * @param file       the jar to scan
+	 * @param options    how to scan the file
+	 * @param contentKey identifies the file's contents, the options' fingerprint is added to it
+	 * @return whether the file is infected; a file which could not be scanned completely counts as clean
+	 * @throws IOException           if the file cannot be read or is not a zip file
+	 * @throws CancellationException if the options' cancellation check fired before the scan was done
+	 */
+	public static boolean scan(ScanLogger logger, File file, ScanOptions options, String contentKey) throws IOException {
+		ScanCache cache = options.getCache();
+		String key = contentKey + "-" + options.fingerprint();
+		if (cache != null) {
+			Boolean cached = cache.get(key);
+			if (cached != null) {
+				logger.info("Using cached scan result for {}", file.getName());
+				report(logger, file.getPath(), cached, null);
+				return cached;
+			}
+		}
+
+		Boolean infected = scanZip(openZip(logger, file),
+			new Scan(logger, options, cache == null ? null : cache.classes(options.getSignatures())));
+		if (cache != null && infected != null) {
+			try {
+				cache.put(key, infected);
+			} catch (IOException e) {
+				logger.warn("Failed to cache scan result for {}", file.getName(), e);
+			}
+		}
+		return infected != null && infected;
+	}
+
+	/**
+	 * Same as {@link #ingest(ScanLogger, File, ScanOptions)}, logging to a Gradle logger.
+	 */
+	public static IngestResult ingest(Logger logger, File file, ScanOptions options) throws IOException {
+		return ingest(new GradleScanLogger(logger), file, options);
+	}
+
+	/**
+	 * Computes a file's SHA-1 and SHA-512, scans it like {@link #scan(ScanLogger, File, ScanOptions)} and picks up any
+	 * mod or plugin metadata along the way. If the options carry a {@link ScanCache}, the verdict of an earlier scan of
+	 * identical content is reused once the file has been hashed, and completed scans are written back to the cache.
+	 * <p>
+	 * Entries are always read from the central directory, which is what the JVM loads classes from. Streaming the
+	 * local headers instead would let a jar hide classes from the scan, by placing them where a stream never looks.
+	 * The hashes are therefore computed in a separate pass over the raw bytes, which for large zips is a pass over
+	 * their memory mapping, so the file is read twice rather than once. The upload reads it once more to send it, but
+	 * takes its hashes from this result.
+	 * <p>
+	 * The result also tells how long this took, how much of the file was scanned and where a signature matched.
+	 *
+	 * @param logger  logger to report the result to
+	 * @param file    the file to read
+	 * @param options how to scan the file
+	 * @return the file's hashes, verdict and metadata
+	 * @throws IOException           if the file cannot be read
+	 * @throws CancellationException if the options' cancellation check fired before the scan was done
+	 */
+	public static IngestResult ingest(ScanLogger logger, File file, ScanOptions options) throws IOException {
+		long start = System.nanoTime();
+		MessageDigest sha1 = digest("SHA-1");
+		MessageDigest sha512 = digest("SHA-512");
+		MessageDigest sha256 = digest("SHA-256");
+		ScanCache cache = options.getCache();
+		ArtifactMetadata metadata = new ArtifactMetadata();
+
+		// null if scanning failed
+		Boolean infected = null;
+		boolean scanned = true;
+		Scan scan = new Scan(logger, options, cache == null ? null : cache.classes(options.getSignatures()));
+		MappedZip mapped = mapZip(logger, file);
+		if (mapped != null) {
+			mapped.digest(sha1, sha512, sha256);
+		} else {
+			digest(file, sha1, sha512, sha256);
+		}
+		String sha256Hex = ScanCache.hex(sha256.digest());
+		String key = sha256Hex + "-" + options.fingerprint();
+		Boolean cached = cache != null ? cache.get(key) : null;
+
+		ZipSource zip = null;
 		try {
-			boolean matches = file.stream()
-				.filter(entry -> entry.getName().endsWith(".class"))
-				.anyMatch(entry -> {
-					try {
-						return scanClass(getByteArray(file.getInputStream(entry)));
-					} catch (IOException e) {
-						throw new RuntimeException(e);
+			zip = mapped != null ? mapped : ZipSource.of(new ZipFile(file));
+		} catch (ZipException e) {
+			logger.warn("Failed to scan {}. Not a valid zip or jar file", file.getName(), e);
+			scanned = false;
+		}
+		if (zip != null) {
+			try {
+				List<? extends ZipEntry> descriptors = zip.stream()
+					.filter(entry -> ArtifactMetadata.isDescriptor(entry.getName()))
+					.collect(Collectors.toList());
+				for (ZipEntry entry : descriptors) {
+					try (InputStream in = zip.getInputStream(entry)) {
+						metadata.read(entry.getName(), getByteArray(in));
 					}
-				});
+				}
+			} catch (IOException e) {
+				logger.warn("Failed to read metadata from {}", file.getName(), e);
+			}
+			if (cached != null) {
+				zip.close();
+				logger.info("Using cached scan result for {}", file.getName());
+				report(logger, file.getPath(), cached, null);
+				infected = cached;
+			} else {
+				infected = scanZip(zip, scan);
+			}
+		}
+
+		scan.stats.wallTime(System.nanoTime() - start);
+		if (cache != null && cached == null && infected != null) {
 			try {
-				file.close();
+				cache.put(key, infected);
 			} catch (IOException e) {
-				e.printStackTrace();
+				logger.warn("Failed to cache scan result for {}", file.getName(), e);
 			}
-			if (!matches)
-				return;
-			throw new GradleException(String.format("!!!! %s is infected with Fractureiser", file.getName()));
+		}
+		return new IngestResult(file, ScanCache.hex(sha1.digest()), ScanCache.hex(sha512.digest()), sha256Hex, scanned,
+			infected, metadata, scan.stats, scan.getMatch());
+	}
+
+	/**
+	 * Opens a zip for reading its entries in any order, memory mapping it if it is large and simple enough.
+	 *
+	 * @throws ZipException if the file is not a zip file
+	 */
+	private static ZipSource openZip(ScanLogger logger, File file) throws IOException {
+		MappedZip mapped = mapZip(logger, file);
+		return mapped != null ? mapped : ZipSource.of(new ZipFile(file));
+	}
+
+	/**
+	 * @return the memory mapped zip, or {@code null} if the file is too small to be worth mapping or it has to be read
+	 * with {@link ZipFile} instead
+	 */
+	@Nullable
+	private static MappedZip mapZip(ScanLogger logger, File file) throws IOException {
+		if (file.length() < MAPPED_ZIP_MIN_SIZE || !MappedZip.isSupported()) {
+			return null;
+		}
+		try {
+			return MappedZip.open(file);
+		} catch (MappedZip.UnsupportedZipException e) {
+			logger.debug("Cannot memory map {} ({}), reading it with ZipFile instead", file.getName(), e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether the file is infected, or {@code null} if scanning failed
+	 */
+	@Nullable
+	private static Boolean scanZip(ZipSource file, Scan scan) {
+		ScanLogger logger = scan.logger;
+		boolean matches;
+		try {
+			matches = anyEntryMatches(file, scan);
 		} catch (Exception e) {
 			logger.error("Failed to scan {}", file.getName(), e);
+			return null;
+		} finally {
+			try {
+				file.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
 		}
+		if (scan.isCancelled()) {
+			throw new CancellationException("Scan of " + file.getName() + " was cancelled");
+		}
+		if (!matches && scan.getFailures() > 0) {
+			// Whatever could not be read may be exactly what is infected
+			logger.error("Failed to scan {} entries of {}, so it may still be infected", scan.getFailures(), file.getName());
+			return null;
+		}
+
+		finish(logger, file.getName(), scan, matches);
+		return matches;
+	}
+
+	private static void finish(ScanLogger logger, String name, Scan scan, boolean matches) {
+		ScanStatistics stats = scan.stats;
+		ClassVerdictCache classCache = scan.classCache;
+		if (classCache != null) {
+			logger.info("Skipped {} unchanged classes in {}", stats.getClassCacheHits(), name);
+		}
+		if (stats.getNestedArchives() > 0) {
+			logger.info("Scanned {} nested jars in {}", stats.getNestedArchives(), name);
+		}
+		logger.info("Constant pool prefilter skipped {} of {} classes in {}", stats.getPrefilterHits(),
+			stats.getPrefilterHits() + stats.getPrefilterMisses(), name);
+		if (stats.getKnownCleanHits() > 0) {
+			logger.info("Skipped {} known clean library classes in {}", stats.getKnownCleanHits(), name);
+		}
+		logger.debug("Looked at {} entries of {}, parsing {} classes and skipping {}, after inflating {} bytes",
+			stats.getEntries(), name, stats.getClassesParsed(), stats.getClassesSkipped(), stats.getBytesInflated());
+		report(logger, name, matches, scan.getMatch());
+	}
+
+	private static void report(ScanLogger logger, String name, boolean infected, @Nullable ScanMatch match) {
+		if (infected && match != null) {
+			logger.error("!!!! {} is infected with Fractureiser, matching {}", name, match);
+		} else if (infected) {
+			logger.error("!!!! {} is infected with Fractureiser", name);
+		} else {
+			logger.info("Fractureiser not detected in {}", name);
+		}
+	}
 
-		logger.info("Fractureiser not detected in {}", file.getName());
+	private static boolean anyEntryMatches(ZipSource file, Scan scan) throws InterruptedException, ExecutionException {
+		if (scan.options.getParallelism() <= 1) {
+			return file.stream()
+				.filter(scan::isScanned)
+				.anyMatch(entry -> scanEntry(file, entry, scan));
+		}
+
+		List<? extends ZipEntry> entries = file.stream()
+			.filter(scan::isScanned)
+			.collect(Collectors.toList());
+
+		// A dedicated pool keeps the scan from competing with everything else on the common pool,
+		// and anyMatch stops handing out entries once a match has been found. Nested jars are
+		// handed out like any other entry, so they are scanned alongside the outer jar's classes.
+		ForkJoinPool pool = new ForkJoinPool(scan.options.getParallelism());
+		try {
+			return pool.submit(() -> entries.parallelStream().anyMatch(entry -> scanEntry(file, entry, scan))).get();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static boolean scanEntry(ZipSource file, ZipEntry entry, Scan scan) {
+		if (scan.isDone()) {
+			return false;
+		}
+		scan.stats.entry();
+		if (!isClass(entry)) {
+			try (InputStream in = file.getInputStream(entry)) {
+				return scan.found(scanNested(in, entry.getName(), 1, scan));
+			} catch (IOException e) {
+				scan.failed(entry.getName(), e);
+				return false;
+			}
+		}
+
+		BufferPool.Buffer clazz;
+		try (InputStream in = file.getInputStream(entry)) {
+			clazz = BufferPool.SHARED.read(in, entry.getSize());
+		} catch (IOException e) {
+			// Like an entry inflating past the limit, which must not keep the remaining entries from being scanned
+			scan.failed(entry.getName(), e);
+			return false;
+		}
+		return scanClassEntry(clazz, entry, scan);
+	}
+
+	/**
+	 * Scans a class read from the pool, and hands its buffer back afterwards.
+	 */
+	private static boolean scanClassEntry(BufferPool.Buffer clazz, ZipEntry entry, Scan scan) {
+		ScanMatch match;
+		try {
+			scan.stats.inflated(clazz.length);
+			match = matchClass(clazz.bytes, clazz.length, entry.getName(), scan);
+		} finally {
+			BufferPool.SHARED.release(clazz);
+		}
+		return scan.found(match);
+	}
+
+	/**
+	 * Scans a jar nested inside another one. Like the outer jar, it is read from its central directory, so it is held
+	 * in memory if it is small and spilled to a temporary file otherwise.
+	 *
+	 * @param name the path of the nested jar within the scanned file
+	 * @return where a signature matched, or {@code null} if nothing did
+	 */
+	@Nullable
+	private static ScanMatch scanNested(InputStream in, String name, int depth, Scan scan) throws IOException {
+		scan.stats.nestedArchive();
+		InputStream limited = new LimitedInputStream(in, scan.options.getNestedJarMaxSize());
+		ByteArrayOutputStream memory = new ByteArrayOutputStream();
+		byte[] chunk = new byte[16384];
+		int n;
+		try {
+			while (memory.size() <= NESTED_IN_MEMORY_MAX_SIZE && (n = limited.read(chunk)) != -1) {
+				memory.write(chunk, 0, n);
+			}
+			if (memory.size() <= NESTED_IN_MEMORY_MAX_SIZE) {
+				try (MappedZip zip = MappedZip.wrap(name, ByteBuffer.wrap(memory.toByteArray()))) {
+					return scanNested(zip, name, depth, scan);
+				} catch (MappedZip.UnsupportedZipException e) {
+					// ZipFile may still be able to read it
+				}
+			}
+
+			Path spilled = Files.createTempFile("minotaur-nested", ".jar");
+			try {
+				try (OutputStream out = Files.newOutputStream(spilled)) {
+					memory.writeTo(out);
+					while ((n = limited.read(chunk)) != -1) {
+						out.write(chunk, 0, n);
+					}
+				}
+				try (ZipFile zip = new ZipFile(spilled.toFile())) {
+					return scanNested(ZipSource.of(zip), name, depth, scan);
+				}
+			} finally {
+				Files.deleteIfExists(spilled);
+			}
+		} catch (LimitExceededException e) {
+			scan.logger.warn("Not scanning nested jar {}, it is larger than {} bytes", name, scan.options.getNestedJarMaxSize());
+		} catch (ZipException e) {
+			scan.logger.warn("Not scanning nested jar {}, it is not a valid zip file", name, e);
+		}
+		return null;
+	}
+
+	@Nullable
+	private static ScanMatch scanNested(ZipSource zip, String name, int depth, Scan scan) throws IOException {
+		List<? extends ZipEntry> entries = zip.stream().collect(Collectors.toList());
+		for (ZipEntry entry : entries) {
+			if (scan.isDone()) {
+				return null;
+			}
+
+			String path = name + "!/" + entry.getName();
+			if (isClass(entry)) {
+				scan.stats.entry();
+				BufferPool.Buffer clazz;
+				try (InputStream in = zip.getInputStream(entry)) {
+					clazz = BufferPool.SHARED.read(in, entry.getSize());
+				} catch (IOException e) {
+					scan.failed(path, e);
+					continue;
+				}
+				try {
+					scan.stats.inflated(clazz.length);
+					ScanMatch match = matchClass(clazz.bytes, clazz.length, path, scan);
+					if (match != null) {
+						return match;
+					}
+				} finally {
+					BufferPool.SHARED.release(clazz);
+				}
+			} else if (depth < scan.options.getNestedJarDepth() && isNestedJar(entry)) {
+				scan.stats.entry();
+				ScanMatch match;
+				try (InputStream in = zip.getInputStream(entry)) {
+					match = scanNested(in, path, depth + 1, scan);
+				}
+				if (match != null) {
+					return match;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean isClass(ZipEntry entry) {
+		return entry.getName().endsWith(".class");
+	}
+
+	private static boolean isNestedJar(ZipEntry entry) {
+		return entry.getName().endsWith(".jar");
+	}
+
+	/**
+	 * State shared by every thread taking part in the scan of one file.
+	 */
+	private static class Scan {
+		final ScanLogger logger;
+		final ScanOptions options;
+		final ScanStatistics stats = new ScanStatistics();
+		@Nullable
+		final ClassVerdictCache classCache;
+		private volatile boolean done = false;
+		// The first match, if several threads find one at once
+		private final AtomicReference<ScanMatch> match = new AtomicReference<>();
+		// Entries which could not be read, which leave the file without a verdict unless another one matches
+		private final AtomicInteger failures = new AtomicInteger();
+
+		Scan(ScanLogger logger, ScanOptions options, @Nullable ClassVerdictCache classCache) {
+			this.logger = logger;
+			this.options = options;
+			this.classCache = classCache;
+		}
+
+		boolean isScanned(ZipEntry entry) {
+			if (isClass(entry)) {
+				return true;
+			}
+			if (options.getNestedJarDepth() < 1 || !isNestedJar(entry)) {
+				return false;
+			}
+			if (entry.getSize() > options.getNestedJarMaxSize()) {
+				logger.warn("Not scanning nested jar {}, it is larger than {} bytes", entry.getName(), options.getNestedJarMaxSize());
+				return false;
+			}
+			return true;
+		}
+
+		boolean isInfected() {
+			return done;
+		}
+
+		boolean found(@Nullable ScanMatch match) {
+			if (match == null) {
+				return false;
+			}
+			this.match.compareAndSet(null, match);
+			done = true;
+			return true;
+		}
+
+		@Nullable
+		ScanMatch getMatch() {
+			return match.get();
+		}
+
+		void failed(String entry, IOException e) {
+			failures.incrementAndGet();
+			logger.warn("Failed to scan {}", entry, e);
+		}
+
+		int getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * @return whether another thread already found a match or the scan was cancelled, so the remaining entries
+		 * can be skipped
+		 */
+		boolean isDone() {
+			return done || options.isCancelled();
+		}
+
+		/**
+		 * @return whether the scan was cancelled before finding a match, which leaves it without a verdict
+		 */
+		boolean isCancelled() {
+			return !done && options.isCancelled();
+		}
+	}
+
+	/**
+	 * Stops reading a nested jar once it grows past the configured size cap.
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		private long remaining;
+
+		LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count(read);
+			}
+			return read;
+		}
+
+		@Override
+		public void close() {
+			// Leave the enclosing stream open
+		}
+
+		private void count(int read) throws LimitExceededException {
+			remaining -= read;
+			if (remaining < 0) {
+				throw new LimitExceededException();
+			}
+		}
+	}
+
+	private static class LimitExceededException extends IOException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static MessageDigest digest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Feeds the whole file to the given digests.
+	 */
+	private static void digest(File file, MessageDigest... digests) throws IOException {
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				for (MessageDigest digest : digests) {
+					digest.update(buffer, 0, n);
+				}
+			}
+		}
 	}
 
 	private static byte[] getByteArray(InputStream inputStream) throws IOException {
@@ -58,7 +606,7 @@ public class JarInfectionScanner {
 		return buffer.toByteArray();
 	}
 
-	private static final AbstractInsnNode[] SIG1 = new AbstractInsnNode[] {
+	static final AbstractInsnNode[] SIG1 = new AbstractInsnNode[] {
 		new TypeInsnNode(NEW, "java/lang/String"),
 		new MethodInsnNode(INVOKESPECIAL, "java/lang/String", "<init>", "([B)V"),
 		new TypeInsnNode(NEW, "java/lang/String"),
@@ -82,7 +630,7 @@ public class JarInfectionScanner {
 			"(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;"),
 	};
 
-	private static final AbstractInsnNode[] SIG2 = new AbstractInsnNode[] {
+	static final AbstractInsnNode[] SIG2 = new AbstractInsnNode[] {
 		new MethodInsnNode(INVOKESTATIC, "java/lang/Runtime", "getRuntime", "()Ljava/lang/Runtime;"),
 		new MethodInsnNode(INVOKESTATIC, "java/util/Base64", "getDecoder", "()Ljava/util/Base64$Decoder;"),
 		new MethodInsnNode(INVOKEVIRTUAL, "java/lang/String", "concat",
@@ -94,7 +642,7 @@ public class JarInfectionScanner {
 	};
 
 	// The IP
-	private static final AbstractInsnNode[] SIG3 = new AbstractInsnNode[] {
+	static final AbstractInsnNode[] SIG3 = new AbstractInsnNode[] {
 		new IntInsnNode(BIPUSH, 56),
 		new InsnNode(BASTORE),
 		new InsnNode(DUP),
@@ -150,126 +698,58 @@ public class JarInfectionScanner {
 		new IntInsnNode(BIPUSH, 48)
 	};
 
-	private static boolean same(AbstractInsnNode a, AbstractInsnNode b) {
-		if (a instanceof TypeInsnNode) {
-			TypeInsnNode aa = (TypeInsnNode) a;
-			return aa.desc.equals(((TypeInsnNode) b).desc);
-		}
-		if (a instanceof MethodInsnNode) {
-			MethodInsnNode aa = (MethodInsnNode) a;
-			return aa.owner.equals(((MethodInsnNode) b).owner)
-				&& aa.name.equals(((MethodInsnNode) b).name)
-				&& aa.desc.equals(((MethodInsnNode) b).desc);
-		}
-		if (a instanceof InsnNode) {
-			return true;
-		}
-		throw new IllegalArgumentException("TYPE NOT ADDED");
+	public static boolean scanClass(byte[] clazz) {
+		return matchClass(clazz, clazz.length, "", Signatures.builtIn(), KnownCleanClasses.none(), null,
+			new ScanStatistics()) != null;
 	}
 
-	public static boolean scanClass(byte[] clazz) {
-		ClassReader reader = new ClassReader(clazz);
-		ClassNode node = new ClassNode();
-		try {
-			reader.accept(node, 0);
-		} catch (Exception e) {
-			return false;// Yes this is very hacky but should never happen with valid clasees
-		}
-		for (MethodNode method : node.methods) {
-			{
-				// Method 1, this is a hard detect, if it matches this it is 100% chance
-				// infected
-				boolean match = true;
-				int j = 0;
-				for (int i = 0; i < method.instructions.size() && j < SIG1.length; i++) {
-					AbstractInsnNode insn = method.instructions.get(i);
-					if (insn.getOpcode() == -1) {
-						continue;
-					}
-					if (insn.getOpcode() == SIG1[j].getOpcode()) {
-						if (!same(insn, SIG1[j++])) {
-							match = false;
-							break;
-						}
-					}
-				}
-				if (j != SIG1.length) {
-					match = false;
-				}
-				if (match) {
-					return true;
-				}
-			}
+	@Nullable
+	private static ScanMatch matchClass(byte[] clazz, int length, String entry, Scan scan) {
+		return matchClass(clazz, length, entry, scan.options.getSignatures(), scan.options.getKnownClean(),
+			scan.classCache, scan.stats);
+	}
 
-			{
-				// Method 2, this is a near hard detect, if it matches this it is 95% chance
-				// infected
-				boolean match = false;
-				outer: for (int q = 0; q < method.instructions.size(); q++) {
-					int j = 0;
-					for (int i = q; i < method.instructions.size() && j < SIG2.length; i++) {
-						AbstractInsnNode insn = method.instructions.get(i);
-						if (insn.getOpcode() != SIG2[j].getOpcode()) {
-							continue;
-						}
-
-						if (insn.getOpcode() == SIG2[j].getOpcode()) {
-							if (!same(insn, SIG2[j++])) {
-								continue outer;
-							}
-						}
-					}
-					if (j == SIG2.length) {
-						match = true;
-						break;
-					}
-				}
-				if (match) {
-					return true;
-				}
+	/**
+	 * @param clazz  a buffer starting with the class file, which may be followed by unrelated bytes
+	 * @param length how many bytes of the buffer belong to the class file
+	 * @param entry      the path of the class file within the scanned file
+	 * @param classCache the classes found clean before, which is told about this one if it is clean too
+	 * @return where a signature matched, or {@code null} if the class is clean
+	 */
+	@Nullable
+	static ScanMatch matchClass(byte[] clazz, int length, String entry, Signatures signatures,
+		KnownCleanClasses knownClean, @Nullable ClassVerdictCache classCache, ScanStatistics stats) {
+		if (!signatures.filter.mayMatch(clazz, length)) {
+			stats.prefilterHit();
+			return null;
+		}
+		stats.prefilterMiss();
+		// Hashing is only worth it for the few classes the prefilter lets through
+		long[] hash = null;
+		if (knownClean.size() > 0 || classCache != null) {
+			hash = KnownCleanClasses.hash(clazz, length);
+			if (knownClean.contains(hash)) {
+				stats.knownCleanHit();
+				return null;
 			}
-
-			// Method 3, this looks for a byte array with the IP. This is a likely match.
-			{
-				boolean match = false;
-				// where we're looking in the SIG3 array
-				int pos = 0;
-				for (int i = 0; i < method.instructions.size(); i++) {
-					if (pos == SIG3.length) {
-						break;
-					}
-					AbstractInsnNode insn = method.instructions.get(i);
-					if (insn.getOpcode() == -1) {
-						continue;
-					}
-					if (insn.getOpcode() == SIG3[pos].getOpcode()) {
-						// the opcode matches
-
-						if (SIG3[pos].getType() == AbstractInsnNode.INT_INSN) {
-							// check if operand matches
-							IntInsnNode iInsn = (IntInsnNode) insn;
-							IntInsnNode sigInsn = (IntInsnNode) SIG3[pos];
-							if (iInsn.operand == sigInsn.operand) {
-								// operands match
-								match = true;
-								pos++;
-							}
-						} else {
-							// this is a regular InsnNode; just match
-							match = true;
-							pos++;
-						}
-					} else {
-						match = false;
-						pos = 0;
-					}
-				}
-
-				if (match) {
-					return true;
-				}
+			if (classCache != null && classCache.isKnownClean(hash)) {
+				stats.classCacheHit();
+				return null;
 			}
 		}
-		return false;
+
+		stats.classParsed();
+		ClassReader reader = new ClassReader(clazz, 0, length);
+		InfectionClassVisitor visitor = new InfectionClassVisitor(signatures);
+		try {
+			reader.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		} catch (Exception e) {
+			return null;// Yes this is very hacky but should never happen with valid clasees
+		}
+		ScanMatch match = visitor.getMatch(entry);
+		if (match == null && classCache != null) {
+			classCache.markClean(hash);
+		}
+		return match;
 	}
 }
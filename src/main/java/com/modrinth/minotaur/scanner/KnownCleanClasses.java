@@ -0,0 +1,202 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashes of library classes known to be clean, like the ones of Gson, Guava or the Kotlin standard library, which do
+ * not have to be parsed when they show up shaded into a jar.
+ * <p>
+ * Classes are identified by the first 128 bits of the SHA-256 of the class file, kept as a sorted array which is
+ * searched by bisection. Unlike a bloom filter this never mistakes a class for a known one, which a scanner cannot
+ * afford. The plugin ships with an index of popular libraries, generated by the {@code knownCleanClasses} task of
+ * Minotaur's own build, which can be extended with a file of SHA-256 hashes, one per line.
+ */
+public final class KnownCleanClasses {
+	private static final String BUNDLED = "known-clean-classes.bin";
+	private static final int MAGIC = 0x4D4B4343;
+	private static final int FORMAT = 1;
+
+	private final String id;
+	// Pairs of the high and low 64 bits of each hash, sorted as unsigned numbers
+	private final long[] hashes;
+
+	private KnownCleanClasses(String id, long[] hashes) {
+		this.id = id;
+		this.hashes = hashes;
+	}
+
+	/**
+	 * @return the index shipped with the plugin
+	 */
+	public static KnownCleanClasses bundled() {
+		return Bundled.INSTANCE;
+	}
+
+	/**
+	 * @return an index which knows no classes at all
+	 */
+	public static KnownCleanClasses none() {
+		return new KnownCleanClasses("none", new long[0]);
+	}
+
+	/**
+	 * Adds hashes from a text file, in which every line that is not empty and does not start with {@code #} holds the
+	 * hex SHA-256 of a class file.
+	 *
+	 * @param file the file listing the hashes
+	 * @return an index with the hashes of this one and of the file
+	 * @throws IOException if the file cannot be read or a line is not a SHA-256 hash
+	 */
+	public KnownCleanClasses withFile(File file) throws IOException {
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		long[] merged = Arrays.copyOf(hashes, hashes.length + lines.size() * 2);
+		int count = hashes.length / 2;
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (line.length() != 64) {
+				throw new IOException(String.format("%s:%d is not a SHA-256 hash", file.getName(), i + 1));
+			}
+			try {
+				merged[count * 2] = Long.parseUnsignedLong(line.substring(0, 16), 16);
+				merged[count * 2 + 1] = Long.parseUnsignedLong(line.substring(16, 32), 16);
+			} catch (NumberFormatException e) {
+				throw new IOException(String.format("%s:%d is not a SHA-256 hash", file.getName(), i + 1), e);
+			}
+			count++;
+		}
+		return new KnownCleanClasses(id + "+" + ScanCache.sha256(file).substring(0, 16), sort(merged, count));
+	}
+
+	/**
+	 * @return identifies the hashes in this index, changing whenever they do
+	 */
+	String getId() {
+		return id;
+	}
+
+	/**
+	 * @return How many classes are known to be clean.
+	 */
+	public int size() {
+		return hashes.length / 2;
+	}
+
+	/**
+	 * @param clazz  a buffer starting with the class file
+	 * @param length how many bytes of the buffer belong to the class file
+	 * @return whether the class is a known clean one
+	 */
+	boolean contains(byte[] clazz, int length) {
+		return hashes.length > 0 && contains(hash(clazz, length));
+	}
+
+	/**
+	 * @param hash a class file's hash, from {@link #hash(byte[], int)}
+	 * @return whether the class is a known clean one
+	 */
+	boolean contains(long[] hash) {
+		return indexOf(hashes, hash[0], hash[1]) >= 0;
+	}
+
+	/**
+	 * @param clazz  a buffer starting with the class file
+	 * @param length how many bytes of the buffer belong to the class file
+	 * @return the high and low 64 bits of the first 128 bits of the class file's SHA-256
+	 */
+	static long[] hash(byte[] clazz, int length) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(clazz, 0, length);
+		byte[] hash = digest.digest();
+		return new long[] {readLong(hash, 0), readLong(hash, 8)};
+	}
+
+	/**
+	 * @param hashes pairs of the high and low 64 bits of hashes, sorted as unsigned numbers
+	 * @return the index of the pair holding the given hash, or -1 if there is none
+	 */
+	static int indexOf(long[] hashes, long high, long low) {
+		int from = 0;
+		int to = hashes.length / 2 - 1;
+		while (from <= to) {
+			int middle = (from + to) >>> 1;
+			int cmp = compare(hashes[middle * 2], hashes[middle * 2 + 1], high, low);
+			if (cmp < 0) {
+				from = middle + 1;
+			} else if (cmp > 0) {
+				to = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	static int compare(long high1, long low1, long high2, long low2) {
+		int cmp = Long.compareUnsigned(high1, high2);
+		return cmp != 0 ? cmp : Long.compareUnsigned(low1, low2);
+	}
+
+	static long[] sort(long[] pairs, int count) {
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compare(pairs[a * 2], pairs[a * 2 + 1], pairs[b * 2], pairs[b * 2 + 1]));
+		long[] sorted = new long[count * 2];
+		for (int i = 0; i < count; i++) {
+			sorted[i * 2] = pairs[order[i] * 2];
+			sorted[i * 2 + 1] = pairs[order[i] * 2 + 1];
+		}
+		return sorted;
+	}
+
+	private static long readLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Loads the bundled index the first time it is needed. After a magic number and the format version, it holds the
+	 * number of hashes followed by the hashes themselves, already sorted.
+	 */
+	private static final class Bundled {
+		static final KnownCleanClasses INSTANCE = load();
+
+		private static KnownCleanClasses load() {
+			InputStream resource = KnownCleanClasses.class.getResourceAsStream(BUNDLED);
+			if (resource == null) {
+				return none();
+			}
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(resource))) {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+					throw new IllegalStateException("Unsupported " + BUNDLED);
+				}
+				int count = in.readInt();
+				long[] hashes = new long[count * 2];
+				for (int i = 0; i < hashes.length; i++) {
+					hashes[i] = in.readLong();
+				}
+				return new KnownCleanClasses("bundled-" + Integer.toHexString(Arrays.hashCode(hashes)), hashes);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read " + BUNDLED, e);
+			}
+		}
+	}
+}
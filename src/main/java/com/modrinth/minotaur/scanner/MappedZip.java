@@ -0,0 +1,389 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a zip file through a memory mapping instead of {@link java.util.zip.ZipFile}, parsing the central directory
+ * itself. Entries are read straight out of the mapping, without going through a file handle, and can be read by several
+ * threads at once.
+ * <p>
+ * Only plain zip files are supported, which covers what build tools produce. Anything else, like zip64 archives,
+ * archives split over several disks, encrypted entries or compression methods other than stored and deflated, makes
+ * {@link #open(File)} throw {@link UnsupportedZipException} so the caller can fall back to {@code ZipFile}.
+ * <p>
+ * The mapping is released once it is garbage collected, not when the zip is closed, since unmapping memory other
+ * threads might still read from would crash the JVM. As Windows does not let a mapped file be deleted, files are not
+ * mapped there at all, see {@link #isSupported()}.
+ */
+final class MappedZip implements ZipSource {
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_HEADER = 0x06054b50;
+	private static final int ZIP64_END_LOCATOR = 0x07064b50;
+	private static final int END_SIZE = 22;
+	private static final int CENTRAL_SIZE = 46;
+	private static final int LOCAL_SIZE = 30;
+	private static final int INFLATE_CHUNK = 8192;
+	private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+	private final String name;
+	private final ByteBuffer mapped;
+	private final List<Entry> entries;
+	// Inflaters are expensive to create, so they are reused like ZipFile does
+	private final ConcurrentLinkedQueue<Decoder> decoders = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed = false;
+
+	private MappedZip(String name, ByteBuffer mapped, List<Entry> entries) {
+		this.name = name;
+		this.mapped = mapped;
+		this.entries = entries;
+	}
+
+	/**
+	 * An entry, along with where to find its local header.
+	 */
+	static final class Entry extends ZipEntry {
+		private final int localHeaderOffset;
+
+		private Entry(String name, int localHeaderOffset) {
+			super(name);
+			this.localHeaderOffset = localHeaderOffset;
+		}
+	}
+
+	/**
+	 * Thrown when a zip uses features this reader does not support.
+	 */
+	static final class UnsupportedZipException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedZipException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * @return whether files may be mapped on this platform, which they are not on Windows, where a mapped file cannot be
+	 * deleted or replaced until the mapping is garbage collected
+	 */
+	static boolean isSupported() {
+		return !WINDOWS;
+	}
+
+	/**
+	 * @param file the zip file
+	 * @return the opened zip
+	 * @throws UnsupportedZipException if the file is not a zip this class can read, which
+	 *                                 {@link java.util.zip.ZipFile} might still be able to
+	 * @throws IOException             if the file cannot be read
+	 */
+	static MappedZip open(File file) throws IOException {
+		ByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new UnsupportedZipException("larger than 2 GiB");
+			}
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			mapped = map.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return new MappedZip(file.getPath(), mapped, readCentralDirectory(mapped));
+	}
+
+	/**
+	 * @param name the name to report the zip under
+	 * @param zip  the whole zip, like a nested jar read into memory
+	 * @return the opened zip
+	 * @throws UnsupportedZipException if the bytes are not a zip this class can read
+	 */
+	static MappedZip wrap(String name, ByteBuffer zip) throws UnsupportedZipException {
+		ByteBuffer buffer = zip.slice().order(ByteOrder.LITTLE_ENDIAN);
+		return new MappedZip(name, buffer, readCentralDirectory(buffer));
+	}
+
+	private static List<Entry> readCentralDirectory(ByteBuffer zip) throws UnsupportedZipException {
+		int end = findEnd(zip);
+		if (end >= 20 && zip.getInt(end - 20) == ZIP64_END_LOCATOR) {
+			throw new UnsupportedZipException("zip64");
+		}
+		if (zip.getShort(end + 4) != 0 || zip.getShort(end + 6) != 0) {
+			throw new UnsupportedZipException("split over several disks");
+		}
+		int count = zip.getShort(end + 10) & 0xFFFF;
+		long size = zip.getInt(end + 12) & 0xFFFFFFFFL;
+		long offset = zip.getInt(end + 16) & 0xFFFFFFFFL;
+		if (count == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+			throw new UnsupportedZipException("zip64");
+		}
+		// Anything prepended to the zip, like a launcher script, shifts every offset in it
+		long base = end - size - offset;
+		if (base < 0) {
+			throw new UnsupportedZipException("central directory out of bounds");
+		}
+
+		List<Entry> entries = new ArrayList<>(count);
+		int position = (int) (base + offset);
+		for (int i = 0; i < count; i++) {
+			if (position + CENTRAL_SIZE > end || zip.getInt(position) != CENTRAL_HEADER) {
+				throw new UnsupportedZipException("malformed central directory");
+			}
+			int flags = zip.getShort(position + 8) & 0xFFFF;
+			int method = zip.getShort(position + 10) & 0xFFFF;
+			long crc = zip.getInt(position + 16) & 0xFFFFFFFFL;
+			long compressedSize = zip.getInt(position + 20) & 0xFFFFFFFFL;
+			long uncompressedSize = zip.getInt(position + 24) & 0xFFFFFFFFL;
+			int nameLength = zip.getShort(position + 28) & 0xFFFF;
+			int extraLength = zip.getShort(position + 30) & 0xFFFF;
+			int commentLength = zip.getShort(position + 32) & 0xFFFF;
+			long localHeaderOffset = base + (zip.getInt(position + 42) & 0xFFFFFFFFL);
+
+			if ((flags & 1) != 0) {
+				throw new UnsupportedZipException("encrypted entries");
+			}
+			if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+				throw new UnsupportedZipException("compression method " + method);
+			}
+			if (compressedSize == 0xFFFFFFFFL || uncompressedSize == 0xFFFFFFFFL || localHeaderOffset >= end) {
+				throw new UnsupportedZipException("zip64");
+			}
+
+			long next = (long) position + CENTRAL_SIZE + nameLength + extraLength + commentLength;
+			if (next > end) {
+				throw new UnsupportedZipException("malformed central directory");
+			}
+
+			byte[] nameBytes = new byte[nameLength];
+			ByteBuffer nameBuffer = zip.duplicate();
+			nameBuffer.position(position + CENTRAL_SIZE);
+			nameBuffer.get(nameBytes);
+			// Like ZipFile, names are read as UTF-8 whether or not the entry says so
+			Entry entry = new Entry(new String(nameBytes, StandardCharsets.UTF_8), (int) localHeaderOffset);
+			entry.setMethod(method);
+			entry.setCrc(crc);
+			entry.setCompressedSize(compressedSize);
+			entry.setSize(uncompressedSize);
+			entries.add(entry);
+
+			position = (int) next;
+		}
+		return Collections.unmodifiableList(entries);
+	}
+
+	private static int findEnd(ByteBuffer zip) throws UnsupportedZipException {
+		// The end record is followed by a comment of at most 64 KiB
+		int last = zip.limit() - END_SIZE;
+		int first = Math.max(0, last - 0xFFFF);
+		for (int position = last; position >= first; position--) {
+			if (zip.getInt(position) == END_HEADER
+				&& position + END_SIZE + (zip.getShort(position + 20) & 0xFFFF) == zip.limit()) {
+				return position;
+			}
+		}
+		throw new UnsupportedZipException("no end of central directory record");
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Stream<Entry> stream() {
+		return entries.stream();
+	}
+
+	/**
+	 * @param entry one of the entries of this zip
+	 * @return the entry's data as it is stored in the zip, which for stored entries are its contents
+	 * @throws ZipException if the entry's local header is malformed
+	 */
+	ByteBuffer slice(Entry entry) throws ZipException {
+		int header = entry.localHeaderOffset;
+		if (header + LOCAL_SIZE > mapped.limit() || mapped.getInt(header) != LOCAL_HEADER) {
+			throw new ZipException("Invalid local header for " + entry.getName());
+		}
+		long start = (long) header + LOCAL_SIZE + (mapped.getShort(header + 26) & 0xFFFF)
+			+ (mapped.getShort(header + 28) & 0xFFFF);
+		long end = start + entry.getCompressedSize();
+		if (end > mapped.limit()) {
+			throw new ZipException("Truncated entry " + entry.getName());
+		}
+		ByteBuffer slice = mapped.duplicate();
+		slice.limit((int) end).position((int) start);
+		return slice.slice();
+	}
+
+	/**
+	 * Feeds the whole file to the given digests.
+	 */
+	void digest(MessageDigest... digests) {
+		for (MessageDigest digest : digests) {
+			ByteBuffer all = mapped.duplicate();
+			all.clear();
+			digest.update(all);
+		}
+	}
+
+	@Override
+	public InputStream getInputStream(ZipEntry entry) throws IOException {
+		if (closed) {
+			throw new IOException("Zip file closed");
+		}
+		ByteBuffer data = slice((Entry) entry);
+		if (entry.getMethod() == ZipEntry.STORED) {
+			return new SliceInputStream(data);
+		}
+		Decoder decoder = decoders.poll();
+		return new InflatingInputStream(data, decoder != null ? decoder : new Decoder());
+	}
+
+	@Override
+	public void close() {
+		// Locked so that no stream hands its inflater back after the pool was emptied, which would leak it
+		synchronized (decoders) {
+			closed = true;
+			Decoder decoder;
+			while ((decoder = decoders.poll()) != null) {
+				decoder.inflater.end();
+			}
+		}
+	}
+
+	/**
+	 * An inflater along with the array it is fed from. Java 8 inflaters cannot read from a buffer directly.
+	 */
+	private static final class Decoder {
+		final Inflater inflater = new Inflater(true);
+		final byte[] input = new byte[INFLATE_CHUNK];
+	}
+
+	private static final class SliceInputStream extends InputStream {
+		private final ByteBuffer data;
+
+		SliceInputStream(ByteBuffer data) {
+			this.data = data;
+		}
+
+		@Override
+		public int read() {
+			return data.hasRemaining() ? data.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!data.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, data.remaining());
+			data.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) {
+			int skipped = (int) Math.max(0, Math.min(n, data.remaining()));
+			data.position(data.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return data.remaining();
+		}
+	}
+
+	private final class InflatingInputStream extends InputStream {
+		private final ByteBuffer data;
+		private final byte[] single = new byte[1];
+		private Decoder decoder;
+		private boolean dummyByteSent = false;
+
+		InflatingInputStream(ByteBuffer data, Decoder decoder) {
+			this.data = data;
+			this.decoder = decoder;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (decoder == null) {
+				throw new IOException("Stream closed");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			Inflater inflater = decoder.inflater;
+			try {
+				int n;
+				while ((n = inflater.inflate(b, off, len)) == 0) {
+					if (inflater.finished() || inflater.needsDictionary()) {
+						return -1;
+					}
+					if (inflater.needsInput()) {
+						fill(inflater);
+					}
+				}
+				return n;
+			} catch (DataFormatException e) {
+				String message = e.getMessage();
+				throw new ZipException(message != null ? message : "Invalid deflate data");
+			}
+		}
+
+		private void fill(Inflater inflater) throws EOFException {
+			if (data.hasRemaining()) {
+				int n = Math.min(decoder.input.length, data.remaining());
+				data.get(decoder.input, 0, n);
+				inflater.setInput(decoder.input, 0, n);
+			} else if (!dummyByteSent) {
+				// Raw deflate data may need one byte of padding to finish, same as in ZipFile
+				dummyByteSent = true;
+				decoder.input[0] = 0;
+				inflater.setInput(decoder.input, 0, 1);
+			} else {
+				throw new EOFException("Unexpected end of entry");
+			}
+		}
+
+		@Override
+		public void close() {
+			if (decoder != null) {
+				decoder.inflater.reset();
+				synchronized (decoders) {
+					if (closed) {
+						decoder.inflater.end();
+					} else {
+						decoders.add(decoder);
+					}
+				}
+				decoder = null;
+			}
+		}
+	}
+}
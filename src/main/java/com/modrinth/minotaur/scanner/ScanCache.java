@@ -0,0 +1,180 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of scan verdicts, stored under the Gradle user home and keyed by the SHA-256 of the scanned file
+ * together with any scan options that affect the verdict.
+ * Entries are evicted least recently used first once there are more than the configured maximum.
+ * <p>
+ * Files that did change still benefit from the per-class verdicts kept alongside, see {@link ClassVerdictCache}.
+ */
+public class ScanCache {
+	/**
+	 * Version of the scanner and its signature set. Bump this whenever either changes so earlier verdicts are not
+	 * reused.
+	 */
+	public static final int VERSION = 2;
+
+	private static final String SUFFIX = ".verdict";
+	private static final String CLEAN = "clean";
+	private static final String INFECTED = "infected";
+
+	private final Path directory;
+	private final Path root;
+	private final int maxEntries;
+	private final Map<String, ClassVerdictCache> classes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param gradleUserHome the Gradle user home directory
+	 * @param maxEntries     how many verdicts to keep before the least recently used ones are evicted
+	 */
+	public ScanCache(File gradleUserHome, int maxEntries) {
+		this.root = gradleUserHome.toPath().resolve("caches").resolve("minotaur");
+		this.directory = root.resolve("scans");
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @param signatures the signatures the classes are scanned for
+	 * @return the per-class verdicts for those signatures, stored next to the file verdicts
+	 */
+	ClassVerdictCache classes(Signatures signatures) {
+		return classes.computeIfAbsent(signatures.getId(), id -> new ClassVerdictCache(root, id));
+	}
+
+	/**
+	 * Writes the classes found clean since the last call to disk. Called once the scans are done rather than after
+	 * every file, as each call rewrites the whole file.
+	 *
+	 * @throws IOException if the class verdicts could not be written
+	 */
+	public void saveClasses() throws IOException {
+		for (ClassVerdictCache cache : classes.values()) {
+			cache.save();
+		}
+	}
+
+	/**
+	 * @param key SHA-256 of the file, as returned by {@link #sha256(File)}, plus anything else the verdict depends on
+	 * @return the cached verdict ({@code true} if infected), or {@code null} if the file has not been scanned before
+	 */
+	@Nullable
+	public Boolean get(String key) {
+		Path entry = entry(key);
+		try {
+			String verdict = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+			// Keep track of when the entry was last used for eviction
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			if (CLEAN.equals(verdict)) {
+				return false;
+			} else if (INFECTED.equals(verdict)) {
+				return true;
+			}
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a verdict, then evicts the least recently used entries if the cache has grown too large.
+	 *
+	 * @param key      SHA-256 of the file, as returned by {@link #sha256(File)}, plus anything else the verdict depends on
+	 * @param infected the verdict
+	 * @throws IOException if the verdict could not be written
+	 */
+	public void put(String key, boolean infected) throws IOException {
+		Files.createDirectories(directory);
+		// Write to a temporary file first so that concurrent builds never see a half-written entry
+		Path temp = Files.createTempFile(directory, "verdict", ".tmp");
+		try {
+			Files.write(temp, (infected ? INFECTED : CLEAN).getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		evict();
+	}
+
+	private void evict() throws IOException {
+		List<Path> entries;
+		try (Stream<Path> stream = Files.list(directory)) {
+			entries = stream
+				.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+				.collect(Collectors.toList());
+		}
+		if (entries.size() <= maxEntries) {
+			return;
+		}
+
+		entries.sort(Comparator.comparingLong(ScanCache::lastModified));
+		for (Path path : entries.subList(0, entries.size() - maxEntries)) {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	private Path entry(String key) {
+		return directory.resolve(key + "-v" + VERSION + SUFFIX);
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			// Most likely removed by another build in the meantime
+			return 0L;
+		}
+	}
+
+	/**
+	 * @param file the file to hash
+	 * @return the lowercase hex SHA-256 of the file's contents
+	 * @throws IOException if the file could not be read
+	 */
+	public static String sha256(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+			byte[] buffer = new byte[65536];
+			//noinspection StatementWithEmptyBody
+			while (in.read(buffer) != -1) {
+			}
+		}
+
+		return hex(digest.digest());
+	}
+
+	/**
+	 * @param digest a digest
+	 * @return the digest as lowercase hex
+	 */
+	static String hex(byte[] digest) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
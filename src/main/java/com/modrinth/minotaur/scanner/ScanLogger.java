@@ -0,0 +1,16 @@
+package com.modrinth.minotaur.scanner;
+
+/**
+ * Receives what the scanner has to say, which keeps it free of Gradle so that it can also run on its own, see
+ * {@link ScannerMain}. Messages are formatted like SLF4J's: every {@code {}} is replaced by the next argument, and a
+ * {@link Throwable} left over as the last argument is logged along with its stack trace.
+ */
+public interface ScanLogger {
+	void debug(String message, Object... args);
+
+	void info(String message, Object... args);
+
+	void warn(String message, Object... args);
+
+	void error(String message, Object... args);
+}
@@ -0,0 +1,56 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Where a signature matched, found by scanning an infected file.
+ */
+public final class ScanMatch {
+	private final String signature;
+	private final String entry;
+	private final String className;
+	@Nullable
+	private final String method;
+
+	ScanMatch(String signature, String entry, String className, @Nullable String method) {
+		this.signature = signature;
+		this.entry = entry;
+		this.className = className;
+		this.method = method;
+	}
+
+	/**
+	 * @return The name of the signature or constant pattern that matched.
+	 */
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * @return The path of the class file within the scanned file, with {@code !/} separating nested jars from their
+	 * entries.
+	 */
+	public String getEntry() {
+		return entry;
+	}
+
+	/**
+	 * @return The internal name of the class that matched, like {@code com/example/Foo}.
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return The name and descriptor of the method that matched, or {@code null} if it was a field's constant.
+	 */
+	@Nullable
+	public String getMethod() {
+		return method;
+	}
+
+	@Override
+	public String toString() {
+		return signature + " in " + className + (method != null ? "." + method : "") + " (" + entry + ")";
+	}
+}
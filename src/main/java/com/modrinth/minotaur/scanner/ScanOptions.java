@@ -0,0 +1,119 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Settings for a single run of the {@link JarInfectionScanner}.
+ */
+public class ScanOptions {
+	private int parallelism = 1;
+	private int nestedJarDepth = 3;
+	private long nestedJarMaxSize = 64L * 1024 * 1024;
+	@Nullable
+	private ScanCache cache = null;
+	private Signatures signatures = Signatures.builtIn();
+	private KnownCleanClasses knownClean = KnownCleanClasses.bundled();
+	private BooleanSupplier cancelled = () -> false;
+
+	/**
+	 * @param parallelism how many entries may be scanned at once; {@code 1} scans on the calling thread
+	 * @return this
+	 */
+	public ScanOptions parallelism(int parallelism) {
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @param nestedJarDepth how deep to descend into jars inside jars; {@code 0} only scans the file's own classes
+	 * @return this
+	 */
+	public ScanOptions nestedJarDepth(int nestedJarDepth) {
+		this.nestedJarDepth = nestedJarDepth;
+		return this;
+	}
+
+	/**
+	 * @param nestedJarMaxSize the largest uncompressed nested jar, in bytes, that will be scanned
+	 * @return this
+	 */
+	public ScanOptions nestedJarMaxSize(long nestedJarMaxSize) {
+		this.nestedJarMaxSize = nestedJarMaxSize;
+		return this;
+	}
+
+	/**
+	 * @param cache the verdict cache, or {@code null} to always scan
+	 * @return this
+	 */
+	public ScanOptions cache(@Nullable ScanCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * @param signatures the signatures to scan for
+	 * @return this
+	 */
+	public ScanOptions signatures(Signatures signatures) {
+		this.signatures = signatures;
+		return this;
+	}
+
+	/**
+	 * @param knownClean the classes to skip because they are known to be clean
+	 * @return this
+	 */
+	public ScanOptions knownClean(KnownCleanClasses knownClean) {
+		this.knownClean = knownClean;
+		return this;
+	}
+
+	/**
+	 * @param cancelled checked while scanning; once it returns {@code true}, scans stop early and throw a
+	 *                  {@link java.util.concurrent.CancellationException} instead of returning a verdict
+	 * @return this
+	 */
+	public ScanOptions cancelWhen(BooleanSupplier cancelled) {
+		this.cancelled = cancelled;
+		return this;
+	}
+
+	int getParallelism() {
+		return parallelism;
+	}
+
+	int getNestedJarDepth() {
+		return nestedJarDepth;
+	}
+
+	long getNestedJarMaxSize() {
+		return nestedJarMaxSize;
+	}
+
+	@Nullable
+	ScanCache getCache() {
+		return cache;
+	}
+
+	Signatures getSignatures() {
+		return signatures;
+	}
+
+	KnownCleanClasses getKnownClean() {
+		return knownClean;
+	}
+
+	boolean isCancelled() {
+		return cancelled.getAsBoolean();
+	}
+
+	/**
+	 * @return the settings which can change a file's verdict, for use in cache keys
+	 */
+	String fingerprint() {
+		return "d" + nestedJarDepth + "s" + nestedJarMaxSize + "-" + signatures.getId() + "-" + knownClean.getId();
+	}
+}
@@ -0,0 +1,125 @@
+package com.modrinth.minotaur.scanner;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters collected while scanning a single file. Safe to update from several scanning threads at once.
+ */
+public class ScanStatistics {
+	private final LongAdder prefilterHits = new LongAdder();
+	private final LongAdder prefilterMisses = new LongAdder();
+	private final LongAdder classCacheHits = new LongAdder();
+	private final LongAdder knownCleanHits = new LongAdder();
+	private final LongAdder nestedArchives = new LongAdder();
+	private final LongAdder entries = new LongAdder();
+	private final LongAdder classesParsed = new LongAdder();
+	private final LongAdder bytesInflated = new LongAdder();
+	private volatile long wallTimeNanos = 0;
+
+	void prefilterHit() {
+		prefilterHits.increment();
+	}
+
+	void prefilterMiss() {
+		prefilterMisses.increment();
+	}
+
+	void classCacheHit() {
+		classCacheHits.increment();
+	}
+
+	void knownCleanHit() {
+		knownCleanHits.increment();
+	}
+
+	void nestedArchive() {
+		nestedArchives.increment();
+	}
+
+	void entry() {
+		entries.increment();
+	}
+
+	void classParsed() {
+		classesParsed.increment();
+	}
+
+	void inflated(long bytes) {
+		bytesInflated.add(bytes);
+	}
+
+	void wallTime(long nanos) {
+		wallTimeNanos = nanos;
+	}
+
+	/**
+	 * @return How many classes the constant pool prefilter rejected without a full parse.
+	 */
+	public long getPrefilterHits() {
+		return prefilterHits.sum();
+	}
+
+	/**
+	 * @return How many classes got past the constant pool prefilter and had to be fully parsed.
+	 */
+	public long getPrefilterMisses() {
+		return prefilterMisses.sum();
+	}
+
+	/**
+	 * @return How many classes got past the constant pool prefilter but were skipped because they were found clean before.
+	 */
+	public long getClassCacheHits() {
+		return classCacheHits.sum();
+	}
+
+	/**
+	 * @return How many classes got past the constant pool prefilter but were skipped as known clean library classes.
+	 */
+	public long getKnownCleanHits() {
+		return knownCleanHits.sum();
+	}
+
+	/**
+	 * @return How many jars nested inside the scanned file were scanned, at any depth.
+	 */
+	public long getNestedArchives() {
+		return nestedArchives.sum();
+	}
+
+	/**
+	 * @return How many classes and nested jars were looked at, at any depth.
+	 */
+	public long getEntries() {
+		return entries.sum();
+	}
+
+	/**
+	 * @return How many classes had to be fully parsed to match them against the signatures.
+	 */
+	public long getClassesParsed() {
+		return classesParsed.sum();
+	}
+
+	/**
+	 * @return How many classes were found clean without being parsed, by the prefilter, the class cache or as known
+	 * clean library classes.
+	 */
+	public long getClassesSkipped() {
+		return getPrefilterHits() + getClassCacheHits() + getKnownCleanHits();
+	}
+
+	/**
+	 * @return How many bytes of classes were decompressed to scan them.
+	 */
+	public long getBytesInflated() {
+		return bytesInflated.sum();
+	}
+
+	/**
+	 * @return How long reading and scanning the file took, in milliseconds.
+	 */
+	public long getWallTimeMillis() {
+		return wallTimeNanos / 1_000_000;
+	}
+}
@@ -0,0 +1,337 @@
+package com.modrinth.minotaur.scanner;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Scans files and whole directories of jars, like a {@code mods} folder or an artifact mirror, without Gradle.
+ * <p>
+ * Every file becomes one task on a work-stealing pool, so a few huge jars do not hold up the rest. Each result is
+ * printed to standard output as a line of JSON as soon as it is known, while progress and the total throughput go to
+ * standard error. The exit code is 0 if nothing is infected, 1 if something is, 2 for invalid arguments and 3 if some
+ * files could not be scanned.
+ */
+public final class ScannerMain {
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: java -jar minotaur-scanner.jar [options] <file or directory>...",
+		"Scans jars for the Fractureiser malware, descending into directories.",
+		"",
+		"  --threads <n>         how many files to scan at once, defaults to the number of cores",
+		"  --fail-fast           stop at the first infected file",
+		"  --nested-depth <n>    how many levels of nested jars to scan, defaults to 3",
+		"  --rules <file>        a JSON file with additional signatures to scan for",
+		"  --clean-hashes <file> a file with SHA-256 hashes of more classes known to be clean",
+		"  --verbose             log details about every scan to standard error");
+
+	private static final Gson GSON = new Gson();
+
+	private ScannerMain() {
+	}
+
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Runs the scanner, like {@link #main(String[])} does, without exiting the JVM.
+	 *
+	 * @param args the command line arguments
+	 * @param out  where the results are printed to
+	 * @param err  where progress and errors are printed to
+	 * @return the exit code
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean failFast = false;
+		boolean verbose = false;
+		ScanOptions options = new ScanOptions();
+		List<Path> roots = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--threads":
+						threads = Integer.parseInt(value(args, ++i));
+						break;
+					case "--fail-fast":
+						failFast = true;
+						break;
+					case "--nested-depth":
+						options.nestedJarDepth(Integer.parseInt(value(args, ++i)));
+						break;
+					case "--rules":
+						options.signatures(Signatures.withRules(new File(value(args, ++i)), gradleUserHome()));
+						break;
+					case "--clean-hashes":
+						options.knownClean(KnownCleanClasses.bundled().withFile(new File(value(args, ++i))));
+						break;
+					case "--verbose":
+						verbose = true;
+						break;
+					case "--help":
+						out.println(USAGE);
+						return 0;
+					default:
+						if (args[i].startsWith("--")) {
+							throw new IllegalArgumentException("Unknown option " + args[i]);
+						}
+						roots.add(new File(args[i]).toPath());
+				}
+			}
+			if (roots.isEmpty()) {
+				throw new IllegalArgumentException("Nothing to scan");
+			}
+			if (threads < 1) {
+				throw new IllegalArgumentException("--threads must be at least 1");
+			}
+		} catch (IllegalArgumentException | IOException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+
+		List<File> files;
+		try {
+			files = collect(roots);
+		} catch (IOException e) {
+			err.println("Failed to list files: " + e.getMessage());
+			return 2;
+		}
+		return scan(files, options, threads, failFast, new ConsoleLogger(err, verbose), out, err);
+	}
+
+	private static int scan(List<File> files, ScanOptions options, int threads, boolean failFast, ScanLogger logger,
+		PrintStream out, PrintStream err) {
+		AtomicBoolean stop = new AtomicBoolean(false);
+		options.cancelWhen(stop::get);
+
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newWorkStealingPool(threads);
+		CompletionService<Result> completion = new ExecutorCompletionService<>(pool);
+		for (File file : files) {
+			completion.submit(() -> {
+				if (stop.get()) {
+					return null;
+				}
+				Result result = scan(file, options, logger);
+				if (failFast && "infected".equals(result.verdict)) {
+					stop.set(true);
+				}
+				return result;
+			});
+		}
+
+		int scanned = 0;
+		int infected = 0;
+		int failed = 0;
+		long bytes = 0;
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				Result result;
+				try {
+					result = completion.take().get();
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof CancellationException)) {
+						// Failures are normally reported as a result, this is only a last resort
+						err.println("Failed to scan a file: " + e.getCause());
+						failed++;
+					}
+					continue;
+				}
+				if (result == null) {
+					continue;
+				}
+				out.println(GSON.toJson(result));
+				scanned++;
+				bytes += result.size;
+				if ("infected".equals(result.verdict)) {
+					infected++;
+				} else if ("error".equals(result.verdict)) {
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stop.set(true);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+		double megabytes = bytes / (1024.0 * 1024.0);
+		err.println(String.format(Locale.ROOT, "Scanned %d of %d files (%.1f MiB) in %.2f s: %.1f files/s, %.1f MiB/s",
+			scanned, files.size(), megabytes, seconds, scanned / seconds, megabytes / seconds));
+		err.println(String.format(Locale.ROOT, "%d infected, %d could not be scanned", infected, failed));
+		return infected > 0 ? 1 : failed > 0 ? 3 : 0;
+	}
+
+	private static Result scan(File file, ScanOptions options, ScanLogger logger) {
+		Result result = new Result();
+		result.file = file.getPath();
+		result.size = file.length();
+		long start = System.nanoTime();
+		try {
+			IngestResult ingested = JarInfectionScanner.ingest(logger, file, options);
+			result.verdict = !ingested.isScanned() ? "unscanned"
+				: !ingested.isConclusive() ? "error"
+				: ingested.isInfected() ? "infected" : "clean";
+			result.sha1 = ingested.getSha1();
+			result.sha512 = ingested.getSha512();
+			result.loaders = ingested.getMetadata().getLoaders();
+			result.id = ingested.getMetadata().getId();
+			result.version = ingested.getMetadata().getVersion();
+			result.entries = ingested.getStatistics().getEntries();
+			result.classesParsed = ingested.getStatistics().getClassesParsed();
+			result.classesSkipped = ingested.getStatistics().getClassesSkipped();
+			result.bytesInflated = ingested.getStatistics().getBytesInflated();
+			result.match = ingested.getMatch();
+		} catch (CancellationException e) {
+			throw e;
+		} catch (Throwable e) {
+			// Whatever went wrong with this file, the others are still scanned
+			result.verdict = "error";
+			result.error = e.toString();
+		}
+		result.millis = (System.nanoTime() - start) / 1_000_000;
+		return result;
+	}
+
+	private static List<File> collect(List<Path> roots) throws IOException {
+		List<File> files = new ArrayList<>();
+		for (Path root : roots) {
+			if (!Files.isDirectory(root)) {
+				// Named explicitly, so scanned whatever it is called
+				files.add(root.toFile());
+				continue;
+			}
+			try (Stream<Path> walk = Files.walk(root)) {
+				files.addAll(walk
+					.filter(Files::isRegularFile)
+					.filter(path -> isArchive(path.getFileName().toString()))
+					.sorted()
+					.map(Path::toFile)
+					.collect(Collectors.toList()));
+			}
+		}
+		return files;
+	}
+
+	private static boolean isArchive(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		return lower.endsWith(".jar") || lower.endsWith(".zip");
+	}
+
+	private static String value(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(args[i - 1] + " needs a value");
+		}
+		return args[i];
+	}
+
+	private static File gradleUserHome() {
+		String env = System.getenv("GRADLE_USER_HOME");
+		return env != null ? new File(env) : new File(System.getProperty("user.home"), ".gradle");
+	}
+
+	/**
+	 * One line of output.
+	 */
+	private static final class Result {
+		String file;
+		long size;
+		String verdict;
+		@Nullable
+		String sha1;
+		@Nullable
+		String sha512;
+		@Nullable
+		List<String> loaders;
+		@Nullable
+		String id;
+		@Nullable
+		String version;
+		long entries;
+		long classesParsed;
+		long classesSkipped;
+		long bytesInflated;
+		@Nullable
+		ScanMatch match;
+		long millis;
+		@Nullable
+		String error;
+	}
+
+	/**
+	 * Logs to standard error, leaving standard output to the results.
+	 */
+	private static final class ConsoleLogger implements ScanLogger {
+		private static final Pattern PLACEHOLDER = Pattern.compile("\\{}");
+
+		private final PrintStream err;
+		private final boolean verbose;
+
+		ConsoleLogger(PrintStream err, boolean verbose) {
+			this.err = err;
+			this.verbose = verbose;
+		}
+
+		@Override
+		public void debug(String message, Object... args) {
+			if (verbose) {
+				log("DEBUG", message, args);
+			}
+		}
+
+		@Override
+		public void info(String message, Object... args) {
+			if (verbose) {
+				log("INFO", message, args);
+			}
+		}
+
+		@Override
+		public void warn(String message, Object... args) {
+			log("WARN", message, args);
+		}
+
+		@Override
+		public void error(String message, Object... args) {
+			log("ERROR", message, args);
+		}
+
+		private void log(String level, String message, Object[] args) {
+			Matcher matcher = PLACEHOLDER.matcher(message);
+			StringBuffer formatted = new StringBuffer();
+			int used = 0;
+			while (matcher.find()) {
+				String arg = used < args.length ? String.valueOf(args[used++]) : "{}";
+				matcher.appendReplacement(formatted, Matcher.quoteReplacement(arg));
+			}
+			matcher.appendTail(formatted);
+			Throwable thrown = used < args.length && args[args.length - 1] instanceof Throwable
+				? (Throwable) args[args.length - 1] : null;
+			synchronized (err) {
+				err.println(level + " " + formatted);
+				if (thrown != null && verbose) {
+					thrown.printStackTrace(err);
+				} else if (thrown != null) {
+					err.println("  " + thrown);
+				}
+			}
+		}
+	}
+}
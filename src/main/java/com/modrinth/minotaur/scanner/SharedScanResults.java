@@ -0,0 +1,202 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory cache of {@link JarInfectionScanner#ingest ingest} results, meant to be shared by every project of a build.
+ * Results are evicted least recently used first.
+ * <p>
+ * A file is looked up by its path, size and modification time first, which costs no IO at all. A copy of the same
+ * file somewhere else, like a shaded dependency built into several projects, is recognised by its SHA-256 instead,
+ * but only hashed if some cached file has the same size. Two projects scanning the same file at the same time scan it
+ * once, with one of them waiting for the other's result, while scans of other files go ahead.
+ */
+public final class SharedScanResults {
+	private final int maxEntries;
+	private final LinkedHashMap<FileKey, IngestResult> results = new LinkedHashMap<>(16, 0.75f, true);
+	// Completed with the result once the scan is done, or with null if the scan did not get to a conclusive one
+	private final Map<FileKey, CompletableFuture<IngestResult>> scanning = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxEntries how many results to keep before the least recently used ones are evicted
+	 */
+	public SharedScanResults(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the cached result for a file, or ingests it like {@link JarInfectionScanner#ingest} if there is none.
+	 * Scans which fail or are cancelled are not cached.
+	 *
+	 * @param logger  logger to report the result to
+	 * @param file    the file to read
+	 * @param options how to scan the file
+	 * @return the file's hashes, verdict and metadata
+	 * @throws IOException if the file cannot be read
+	 */
+	public IngestResult ingest(ScanLogger logger, File file, ScanOptions options) throws IOException {
+		FileKey key = new FileKey(file, options.fingerprint());
+		while (true) {
+			IngestResult cached = get(key);
+			if (cached == null) {
+				cached = findCopy(key, file);
+			}
+			if (cached != null) {
+				hits.increment();
+				logger.info("Reusing the scan result for {} from earlier in this build", file.getName());
+				return cached;
+			}
+
+			CompletableFuture<IngestResult> scan = new CompletableFuture<>();
+			CompletableFuture<IngestResult> running = scanning.putIfAbsent(key, scan);
+			if (running != null) {
+				// Another project is scanning the file right now, if it fails this one tries again
+				IngestResult result = await(running);
+				if (result != null) {
+					hits.increment();
+					logger.info("Reusing the scan result for {} from another project", file.getName());
+					return result.withFile(file);
+				}
+				continue;
+			}
+
+			IngestResult result = null;
+			try {
+				// The scan which was running may have finished between the lookup above and claiming the file
+				result = get(key);
+				if (result != null) {
+					hits.increment();
+					logger.info("Reusing the scan result for {} from another project", file.getName());
+					return result;
+				}
+				misses.increment();
+				result = JarInfectionScanner.ingest(logger, file, options);
+				if (result.isConclusive()) {
+					put(key, result);
+				}
+				return result;
+			} finally {
+				scanning.remove(key, scan);
+				scan.complete(result != null && result.isConclusive() ? result : null);
+			}
+		}
+	}
+
+	@Nullable
+	private static IngestResult await(CompletableFuture<IngestResult> scan) throws InterruptedIOException {
+		try {
+			return scan.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for another scan of the same file");
+		} catch (ExecutionException e) {
+			// Never completed exceptionally
+			return null;
+		}
+	}
+
+	/**
+	 * @return How many files were not scanned again because their result was cached.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return How many files had to be scanned.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Nullable
+	private IngestResult findCopy(FileKey key, File file) throws IOException {
+		List<IngestResult> sameSize = new ArrayList<>();
+		synchronized (results) {
+			for (Map.Entry<FileKey, IngestResult> entry : results.entrySet()) {
+				if (entry.getKey().size == key.size && entry.getKey().fingerprint.equals(key.fingerprint)) {
+					sameSize.add(entry.getValue());
+				}
+			}
+		}
+		if (sameSize.isEmpty()) {
+			return null;
+		}
+
+		String sha256 = ScanCache.sha256(file);
+		for (IngestResult candidate : sameSize) {
+			if (candidate.getSha256().equals(sha256)) {
+				IngestResult copy = candidate.withFile(file);
+				put(key, copy);
+				return copy;
+			}
+		}
+		return null;
+	}
+
+	@Nullable
+	private IngestResult get(FileKey key) {
+		synchronized (results) {
+			IngestResult result = results.get(key);
+			return result == null ? null : result.withFile(key.file);
+		}
+	}
+
+	private void put(FileKey key, IngestResult result) {
+		synchronized (results) {
+			results.put(key, result);
+			if (results.size() > maxEntries) {
+				results.remove(results.keySet().iterator().next());
+			}
+		}
+	}
+
+	/**
+	 * Identifies a file without reading it. Anything that rewrites the file changes its size or modification time.
+	 */
+	private static final class FileKey {
+		final File file;
+		final String path;
+		final long size;
+		final long lastModified;
+		final String fingerprint;
+
+		FileKey(File file, String fingerprint) {
+			this.file = file;
+			this.path = file.getAbsolutePath();
+			this.size = file.length();
+			this.lastModified = file.lastModified();
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof FileKey)) {
+				return false;
+			}
+			FileKey other = (FileKey) o;
+			return path.equals(other.path) && size == other.size && lastModified == other.lastModified
+				&& fingerprint.equals(other.fingerprint);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, size, lastModified, fingerprint);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.*;
+
+import java.util.Objects;
+
+/**
+ * A named sequence of instructions which identifies malicious code, along with how strictly the instructions have to
+ * follow each other.
+ */
+final class Signature {
+	/**
+	 * How the instructions of a signature are matched against the instructions of a method.
+	 */
+	enum Mode {
+		/**
+		 * Matched from the first instruction of the method. Instructions with another opcode than the next expected
+		 * one are skipped, but one with the same opcode has to match it exactly.
+		 */
+		ORDERED,
+		/**
+		 * Like {@link #ORDERED}, but the match may start at any instruction of the method.
+		 */
+		ORDERED_ANYWHERE,
+		/**
+		 * The instructions have to follow each other directly. Only an instruction with the expected opcode but a
+		 * different operand may sit in between.
+		 */
+		CONTIGUOUS
+	}
+
+	/**
+	 * Matchers keep the progress of a signature in the bits of a {@code long}, one bit per instruction plus one for
+	 * a complete match.
+	 */
+	static final int MAX_LENGTH = 63;
+
+	final String name;
+	final Mode mode;
+	final Insn[] insns;
+
+	/**
+	 * @param name  name used when reporting a match
+	 * @param mode  how the instructions are matched
+	 * @param insns the instructions, at most {@value #MAX_LENGTH} of them
+	 */
+	Signature(String name, Mode mode, Insn[] insns) {
+		if (insns.length == 0 || insns.length > MAX_LENGTH) {
+			throw new IllegalArgumentException(String.format("Signature %s must have between 1 and %d instructions",
+				name, MAX_LENGTH));
+		}
+		this.name = name;
+		this.mode = mode;
+		this.insns = insns;
+	}
+
+	/**
+	 * @param name  name used when reporting a match
+	 * @param mode  how the instructions are matched
+	 * @param insns the instructions, at most {@value #MAX_LENGTH} of them
+	 */
+	Signature(String name, Mode mode, AbstractInsnNode[] insns) {
+		this(name, mode, toInsns(insns));
+	}
+
+	private static Insn[] toInsns(AbstractInsnNode[] nodes) {
+		Insn[] insns = new Insn[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			insns[i] = Insn.of(nodes[i]);
+		}
+		return insns;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * One instruction of a signature. Any property left {@code null} matches every value.
+	 */
+	static final class Insn {
+		final int opcode;
+		@Nullable
+		final String owner, name, desc;
+		@Nullable
+		final Integer operand;
+		@Nullable
+		final String constant;
+
+		/**
+		 * @param opcode   the opcode
+		 * @param owner    owner of a field or method instruction
+		 * @param name     name of a field or method instruction
+		 * @param desc     descriptor of a field or method instruction, or type of a type instruction
+		 * @param operand  operand of an int instruction, or variable of a var instruction
+		 * @param constant string pushed by an {@code ldc} instruction
+		 */
+		Insn(int opcode, @Nullable String owner, @Nullable String name, @Nullable String desc, @Nullable Integer operand,
+			 @Nullable String constant) {
+			this.opcode = opcode;
+			this.owner = owner;
+			this.name = name;
+			this.desc = desc;
+			this.operand = operand;
+			this.constant = constant;
+		}
+
+		static Insn of(AbstractInsnNode insn) {
+			int opcode = insn.getOpcode();
+			if (insn instanceof MethodInsnNode) {
+				MethodInsnNode method = (MethodInsnNode) insn;
+				return new Insn(opcode, method.owner, method.name, method.desc, null, null);
+			} else if (insn instanceof FieldInsnNode) {
+				FieldInsnNode field = (FieldInsnNode) insn;
+				return new Insn(opcode, field.owner, field.name, field.desc, null, null);
+			} else if (insn instanceof TypeInsnNode) {
+				return new Insn(opcode, null, null, ((TypeInsnNode) insn).desc, null, null);
+			} else if (insn instanceof IntInsnNode) {
+				return new Insn(opcode, null, null, null, ((IntInsnNode) insn).operand, null);
+			} else if (insn instanceof VarInsnNode) {
+				return new Insn(opcode, null, null, null, ((VarInsnNode) insn).var, null);
+			} else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof String) {
+				return new Insn(opcode, null, null, null, null, (String) ((LdcInsnNode) insn).cst);
+			} else if (insn instanceof InsnNode) {
+				return new Insn(opcode, null, null, null, null, null);
+			}
+			throw new IllegalArgumentException("Unsupported signature instruction type " + insn.getClass().getSimpleName());
+		}
+
+		boolean matches(@Nullable String owner, @Nullable String name, @Nullable String desc, int operand,
+						@Nullable Object constant) {
+			return (this.owner == null || this.owner.equals(owner))
+				&& (this.name == null || this.name.equals(name))
+				&& (this.desc == null || this.desc.equals(desc))
+				&& (this.operand == null || this.operand == operand)
+				&& (this.constant == null || this.constant.equals(constant));
+		}
+
+		/**
+		 * @return whether every instruction with this opcode matches, regardless of its operands
+		 */
+		boolean matchesAnyOperands() {
+			return owner == null && name == null && desc == null && operand == null && constant == null;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Insn)) {
+				return false;
+			}
+			Insn insn = (Insn) o;
+			return opcode == insn.opcode && Objects.equals(owner, insn.owner) && Objects.equals(name, insn.name)
+				&& Objects.equals(desc, insn.desc) && Objects.equals(operand, insn.operand)
+				&& Objects.equals(constant, insn.constant);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(opcode, owner, name, desc, operand, constant);
+		}
+	}
+}
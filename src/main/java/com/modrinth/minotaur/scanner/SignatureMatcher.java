@@ -0,0 +1,111 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matches any number of {@link Signature}s against a method in a single pass over its instructions.
+ * <p>
+ * The signatures are compiled into a table of bit masks indexed by opcode. The progress of each signature is kept as
+ * a set of states, one bit per instruction matched so far, and every instruction advances all of them at once with a
+ * few bitwise operations. The time spent per instruction therefore only depends on the number of signatures, never on
+ * the length of the method.
+ */
+final class SignatureMatcher {
+	private final Signature[] signatures;
+	// opcodeMasks[opcode][signature] has bit j set if instruction j of the signature has that opcode
+	private final long[][] opcodeMasks = new long[256][];
+	private final long[] doneMasks;
+	private final int[] contiguous;
+
+	SignatureMatcher(List<Signature> signatures) {
+		this.signatures = signatures.toArray(new Signature[0]);
+		this.doneMasks = new long[this.signatures.length];
+
+		List<Integer> contiguous = new ArrayList<>();
+		for (int k = 0; k < this.signatures.length; k++) {
+			Signature signature = this.signatures[k];
+			for (int j = 0; j < signature.insns.length; j++) {
+				int opcode = signature.insns[j].opcode;
+				if (opcodeMasks[opcode] == null) {
+					opcodeMasks[opcode] = new long[this.signatures.length];
+				}
+				opcodeMasks[opcode][k] |= 1L << j;
+			}
+			doneMasks[k] = 1L << signature.insns.length;
+			if (signature.mode == Signature.Mode.CONTIGUOUS) {
+				contiguous.add(k);
+			}
+		}
+		this.contiguous = contiguous.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @return the matching state for a method which has not seen any instructions yet
+	 */
+	long[] newState() {
+		long[] state = new long[signatures.length];
+		Arrays.fill(state, 1L);
+		return state;
+	}
+
+	/**
+	 * Advances every signature by one instruction.
+	 *
+	 * @param state    the method's matching state, updated in place
+	 * @param opcode   the instruction's opcode
+	 * @param owner    owner of a field or method instruction
+	 * @param name     name of a field or method instruction
+	 * @param desc     descriptor of a field or method instruction, or type of a type instruction
+	 * @param operand  operand of an int instruction, or variable of a var instruction
+	 * @param constant value pushed by an {@code ldc} instruction
+	 * @return the first signature that is now fully matched, or {@code null} if none is yet
+	 */
+	@Nullable
+	Signature step(long[] state, int opcode, @Nullable String owner, @Nullable String name, @Nullable String desc,
+				   int operand, @Nullable Object constant) {
+		long[] masks = opcodeMasks[opcode];
+		if (masks == null) {
+			// No signature contains this opcode, so the only thing that can change is a contiguous run breaking
+			for (int k : contiguous) {
+				state[k] = 1L;
+			}
+			return null;
+		}
+
+		for (int k = 0; k < signatures.length; k++) {
+			long states = state[k];
+			if (signatures[k].mode == Signature.Mode.ORDERED_ANYWHERE) {
+				// A new match may begin at every instruction
+				states |= 1L;
+			}
+
+			long sameOpcode = states & masks[k];
+			long equal = 0;
+			for (long pending = sameOpcode; pending != 0; pending &= pending - 1) {
+				int j = Long.numberOfTrailingZeros(pending);
+				if (signatures[k].insns[j].matches(owner, name, desc, operand, constant)) {
+					equal |= 1L << j;
+				}
+			}
+
+			if (signatures[k].mode == Signature.Mode.CONTIGUOUS) {
+				// Any other opcode starts the run over, without trying this instruction as its first element
+				long other = states & ~masks[k];
+				states = (equal << 1) | (sameOpcode & ~equal) | (other != 0 ? 1L : 0L);
+			} else {
+				// States waiting for another opcode carry on, states for this opcode either advance or die
+				states = (states & ~masks[k]) | (equal << 1);
+			}
+
+			state[k] = states;
+			if ((states & doneMasks[k]) != 0) {
+				return signatures[k];
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,245 @@
+package com.modrinth.minotaur.scanner;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Opcodes;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Signatures loaded from a user supplied rules file, in the following JSON format:
+ * <pre>{@code
+ * {
+ *   "signatures": [
+ *     {
+ *       "name": "my-signature",
+ *       "mode": "ordered_anywhere",
+ *       "instructions": [
+ *         { "opcode": "INVOKESTATIC", "owner": "java/lang/Runtime", "name": "getRuntime" },
+ *         { "opcode": "LDC", "constant": "calc.exe" },
+ *         { "opcode": "BIPUSH", "operand": 56 }
+ *       ]
+ *     }
+ *   ],
+ *   "constants": [ "malware.example.com" ]
+ * }
+ * }</pre>
+ * Properties left out of an instruction match anything. Strings listed under {@code constants} are reported when any
+ * string constant of a class contains them.
+ * <p>
+ * Parsed rules are compiled into a small binary index under the Gradle user home, keyed by the SHA-256 of the rules
+ * file, so later builds skip the JSON parsing.
+ */
+final class SignatureRules {
+	private static final int MAGIC = 0x4D534958; // MSIX
+	private static final int INDEX_VERSION = 1;
+	private static final Map<String, Integer> OPCODES = opcodes();
+
+	final List<Signature> signatures;
+	final List<String> constants;
+
+	SignatureRules(List<Signature> signatures, List<String> constants) {
+		this.signatures = signatures;
+		this.constants = constants;
+	}
+
+	/**
+	 * Reads the rules from the index if it was compiled before, otherwise parses the rules file and compiles it.
+	 *
+	 * @param rules     the JSON rules file
+	 * @param sha256    SHA-256 of the rules file
+	 * @param directory the directory holding compiled indexes
+	 * @return the rules
+	 * @throws IOException if the rules file could not be read
+	 */
+	static SignatureRules load(File rules, String sha256, Path directory) throws IOException {
+		Path index = directory.resolve(sha256 + "-v" + INDEX_VERSION + ".idx");
+		if (Files.isRegularFile(index)) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+				return read(in);
+			} catch (IOException | IllegalArgumentException e) {
+				// Written by an incompatible version or damaged, compile it again below
+			}
+		}
+
+		SignatureRules parsed = parse(rules);
+		Files.createDirectories(directory);
+		// Write to a temporary file first so that concurrent builds never see a half-written index
+		Path temp = Files.createTempFile(directory, "rules", ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				parsed.write(out);
+			}
+			Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return parsed;
+	}
+
+	static SignatureRules parse(File file) throws IOException {
+		RulesJson json;
+		try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+			json = new Gson().fromJson(reader, RulesJson.class);
+		} catch (JsonParseException e) {
+			throw new IllegalArgumentException("Scan rules file " + file + " is not valid JSON", e);
+		}
+		if (json == null) {
+			throw new IllegalArgumentException("Scan rules file " + file + " is empty");
+		}
+
+		List<Signature> signatures = new ArrayList<>();
+		if (json.signatures != null) {
+			for (SignatureJson signature : json.signatures) {
+				signatures.add(signature.toSignature(file));
+			}
+		}
+		List<String> constants = json.constants == null ? Collections.emptyList() : json.constants;
+		if (constants.contains(null) || constants.contains("")) {
+			throw new IllegalArgumentException("Scan rules file " + file + " contains an empty constant");
+		}
+		return new SignatureRules(signatures, constants);
+	}
+
+	private static SignatureRules read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a signature index");
+		}
+		List<Signature> signatures = new ArrayList<>();
+		for (int k = in.readInt(); k > 0; k--) {
+			String name = in.readUTF();
+			int mode = in.readUnsignedByte();
+			if (mode >= Signature.Mode.values().length) {
+				throw new IOException("Unknown signature mode " + mode);
+			}
+			Signature.Insn[] insns = new Signature.Insn[in.readUnsignedByte()];
+			for (int j = 0; j < insns.length; j++) {
+				int opcode = in.readUnsignedByte();
+				insns[j] = new Signature.Insn(opcode, readString(in), readString(in), readString(in),
+					in.readBoolean() ? in.readInt() : null, readString(in));
+			}
+			signatures.add(new Signature(name, Signature.Mode.values()[mode], insns));
+		}
+		List<String> constants = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			constants.add(in.readUTF());
+		}
+		return new SignatureRules(signatures, constants);
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(signatures.size());
+		for (Signature signature : signatures) {
+			out.writeUTF(signature.name);
+			out.writeByte(signature.mode.ordinal());
+			out.writeByte(signature.insns.length);
+			for (Signature.Insn insn : signature.insns) {
+				out.writeByte(insn.opcode);
+				writeString(out, insn.owner);
+				writeString(out, insn.name);
+				writeString(out, insn.desc);
+				out.writeBoolean(insn.operand != null);
+				if (insn.operand != null) {
+					out.writeInt(insn.operand);
+				}
+				writeString(out, insn.constant);
+			}
+		}
+		out.writeInt(constants.size());
+		for (String constant : constants) {
+			out.writeUTF(constant);
+		}
+	}
+
+	@Nullable
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeString(DataOutputStream out, @Nullable String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	/**
+	 * @return every instruction opcode declared in {@link Opcodes}, by name
+	 */
+	private static Map<String, Integer> opcodes() {
+		Map<String, Integer> opcodes = new HashMap<>();
+		for (Field field : Opcodes.class.getFields()) {
+			// Skip access flags, array types, handle kinds, frame types and class file versions
+			if (field.getType() != int.class || field.getName().matches("(ACC|T|H|F|V|SOURCE)_.*|V\\d.*|ASM\\d+")) {
+				continue;
+			}
+			try {
+				int value = field.getInt(null);
+				if (value >= 0 && value < 256) {
+					opcodes.put(field.getName(), value);
+				}
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return opcodes;
+	}
+
+	private static class RulesJson {
+		List<SignatureJson> signatures;
+		List<String> constants;
+	}
+
+	private static class SignatureJson {
+		String name;
+		String mode;
+		List<InstructionJson> instructions;
+
+		Signature toSignature(File file) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("Scan rules file " + file + " contains a signature without a name");
+			}
+			Signature.Mode mode;
+			try {
+				mode = this.mode == null ? Signature.Mode.ORDERED_ANYWHERE
+					: Signature.Mode.valueOf(this.mode.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(String.format("Signature %s in %s has unknown mode %s, expected one of %s",
+					name, file, this.mode, Arrays.toString(Signature.Mode.values()).toLowerCase(Locale.ROOT)));
+			}
+			if (instructions == null || instructions.isEmpty() || instructions.size() > Signature.MAX_LENGTH) {
+				throw new IllegalArgumentException(String.format("Signature %s in %s must have between 1 and %d instructions",
+					name, file, Signature.MAX_LENGTH));
+			}
+
+			Signature.Insn[] insns = new Signature.Insn[instructions.size()];
+			for (int j = 0; j < insns.length; j++) {
+				InstructionJson insn = instructions.get(j);
+				Integer opcode = insn.opcode == null ? null : OPCODES.get(insn.opcode.toUpperCase(Locale.ROOT));
+				if (opcode == null) {
+					throw new IllegalArgumentException(String.format("Instruction %d of signature %s in %s has unknown opcode %s",
+						j + 1, name, file, insn.opcode));
+				}
+				insns[j] = new Signature.Insn(opcode, insn.owner, insn.name, insn.desc, insn.operand, insn.constant);
+			}
+			return new Signature(name, mode, insns);
+		}
+	}
+
+	private static class InstructionJson {
+		String opcode;
+		String owner;
+		String name;
+		String desc;
+		Integer operand;
+		String constant;
+	}
+}
@@ -0,0 +1,79 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled set of signatures to scan for: the built-in Fractureiser signatures, optionally extended with rules
+ * loaded from a file (see {@link SignatureRules} for the format).
+ */
+public final class Signatures {
+	private static final List<Signature> FRACTUREISER = Arrays.asList(
+		// Method 1, this is a hard detect, if it matches this it is 100% chance infected
+		new Signature("SIG1", Signature.Mode.ORDERED, JarInfectionScanner.SIG1),
+		// Method 2, this is a near hard detect, if it matches this it is 95% chance infected
+		new Signature("SIG2", Signature.Mode.ORDERED_ANYWHERE, JarInfectionScanner.SIG2),
+		// Method 3, this looks for a byte array with the IP. This is a likely match.
+		new Signature("SIG3", Signature.Mode.CONTIGUOUS, JarInfectionScanner.SIG3)
+	);
+	private static final Signatures BUILT_IN = new Signatures("builtin", FRACTUREISER, Collections.emptyList());
+
+	// Rules files are only ever compiled once per daemon
+	private static final Map<String, Signatures> LOADED = new ConcurrentHashMap<>();
+
+	private final String id;
+	final SignatureMatcher matcher;
+	final ConstantPoolFilter filter;
+	final String[] constants;
+
+	private Signatures(String id, List<Signature> signatures, List<String> constants) {
+		this.id = id;
+		this.matcher = new SignatureMatcher(signatures);
+		this.filter = new ConstantPoolFilter(signatures, constants);
+		this.constants = constants.toArray(new String[0]);
+	}
+
+	/**
+	 * @return the built-in Fractureiser signatures
+	 */
+	public static Signatures builtIn() {
+		return BUILT_IN;
+	}
+
+	/**
+	 * Loads the built-in signatures together with the ones from a rules file. The compiled rules are cached under
+	 * the Gradle user home by the rules file's SHA-256.
+	 *
+	 * @param rules          the JSON rules file
+	 * @param gradleUserHome the Gradle user home directory
+	 * @return the combined signatures
+	 * @throws IOException              if the rules file could not be read
+	 * @throws IllegalArgumentException if the rules are not valid
+	 */
+	public static Signatures withRules(File rules, File gradleUserHome) throws IOException {
+		String sha256 = ScanCache.sha256(rules);
+		Signatures signatures = LOADED.get(sha256);
+		if (signatures == null) {
+			SignatureRules loaded = SignatureRules.load(rules, sha256,
+				gradleUserHome.toPath().resolve("caches").resolve("minotaur").resolve("rules"));
+			List<Signature> combined = new ArrayList<>(FRACTUREISER);
+			combined.addAll(loaded.signatures);
+			signatures = new Signatures(sha256, combined, loaded.constants);
+			LOADED.put(sha256, signatures);
+		}
+		return signatures;
+	}
+
+	/**
+	 * @return identifies this set of signatures in cache keys
+	 */
+	String getId() {
+		return id;
+	}
+}
@@ -0,0 +1,54 @@
+package com.modrinth.minotaur.scanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A zip file whose entries can be read in any order, either through {@link ZipFile} or through {@link MappedZip}.
+ */
+interface ZipSource extends Closeable {
+	/**
+	 * @return the path of the zip file
+	 */
+	String getName();
+
+	/**
+	 * @return every entry, in the order of the central directory
+	 */
+	Stream<? extends ZipEntry> stream();
+
+	/**
+	 * @param entry one of the entries of this zip
+	 * @return the entry's uncompressed contents
+	 * @throws IOException if the entry cannot be read
+	 */
+	InputStream getInputStream(ZipEntry entry) throws IOException;
+
+	static ZipSource of(ZipFile file) {
+		return new ZipSource() {
+			@Override
+			public String getName() {
+				return file.getName();
+			}
+
+			@Override
+			public Stream<? extends ZipEntry> stream() {
+				return file.stream();
+			}
+
+			@Override
+			public InputStream getInputStream(ZipEntry entry) throws IOException {
+				return file.getInputStream(entry);
+			}
+
+			@Override
+			public void close() throws IOException {
+				file.close();
+			}
+		};
+	}
+}
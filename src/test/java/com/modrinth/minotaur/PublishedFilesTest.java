@@ -0,0 +1,105 @@
+package com.modrinth.minotaur;
+
+import com.sun.net.httpserver.HttpServer;
+import org.gradle.api.GradleException;
+import org.gradle.api.services.BuildServiceParameters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishedFilesTest {
+	private HttpServer server;
+	private final AtomicReference<String> request = new AtomicReference<>();
+	private final AtomicReference<String> authorization = new AtomicReference<>();
+	private volatile int status = 200;
+	private volatile String response = "{}";
+	private volatile String rateLimitRemaining = "300";
+	private final ModrinthApiService service = new ModrinthApiService() {
+		@Override
+		public BuildServiceParameters.None getParameters() {
+			return null;
+		}
+	};
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/v2/version_files", exchange -> {
+			try (InputStream in = exchange.getRequestBody()) {
+				request.set(MultipartUpload.read(in));
+			}
+			authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+			exchange.getResponseHeaders().add("X-Ratelimit-Remaining", rateLimitRemaining);
+			exchange.getResponseHeaders().add("X-Ratelimit-Reset", "1");
+			byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stop() {
+		server.stop(0);
+		service.close();
+	}
+
+	@Test
+	void findsPublishedVersionsByHash() throws IOException {
+		response = "{\"aaaa\": {\"id\": \"IIJJKKLL\", \"project_id\": \"AABBCCDD\", \"version_number\": \"1.0.0\"}}";
+
+		Map<String, PublishedFiles.Version> versions = files().lookup(Arrays.asList("aaaa", "bbbb"));
+
+		assertEquals(1, versions.size());
+		PublishedFiles.Version version = versions.get("aaaa");
+		assertEquals("IIJJKKLL", version.id);
+		assertEquals("AABBCCDD", version.projectId);
+		assertEquals("1.0.0", version.versionNumber);
+		assertNull(versions.get("bbbb"));
+		assertEquals("{\"hashes\":[\"aaaa\",\"bbbb\"],\"algorithm\":\"sha512\"}", request.get());
+		assertEquals("token", authorization.get());
+	}
+
+	@Test
+	void nothingPublished() throws IOException {
+		assertTrue(files().lookup(Collections.singletonList("aaaa")).isEmpty());
+	}
+
+	@Test
+	void failsOnErrorStatus() {
+		status = 401;
+		response = "{\"error\": \"unauthorized\"}";
+
+		GradleException e = assertThrows(GradleException.class, () -> files().lookup(Collections.singletonList("aaaa")));
+		assertTrue(e.getMessage().contains("401"));
+	}
+
+	@Test
+	void waitsForRateLimitToReset() throws IOException {
+		rateLimitRemaining = "0";
+		files().lookup(Collections.singletonList("aaaa"));
+
+		long start = System.nanoTime();
+		files().lookup(Collections.singletonList("aaaa"));
+		assertTrue(System.nanoTime() - start >= 900_000_000L);
+	}
+
+	private PublishedFiles files() {
+		return new PublishedFiles(service, "http://localhost:" + server.getAddress().getPort() + "/v2", "token", "test");
+	}
+}
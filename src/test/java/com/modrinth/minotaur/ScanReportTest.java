@@ -0,0 +1,130 @@
+package com.modrinth.minotaur;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.modrinth.minotaur.scanner.IngestResult;
+import com.modrinth.minotaur.scanner.JarInfectionScanner;
+import com.modrinth.minotaur.scanner.ScanLogger;
+import com.modrinth.minotaur.scanner.ScanOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanReportTest {
+	private static final ScanLogger QUIET = new ScanLogger() {
+		@Override
+		public void debug(String message, Object... args) {
+		}
+
+		@Override
+		public void info(String message, Object... args) {
+		}
+
+		@Override
+		public void warn(String message, Object... args) {
+		}
+
+		@Override
+		public void error(String message, Object... args) {
+		}
+	};
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void matchesFilesByPath() throws IOException {
+		File fabric = file("fabric/build/libs/mod.jar", "fabric");
+		File forge = file("forge/build/libs/mod.jar", "forge");
+
+		ScanReport.Entry fabricEntry = entry(fabric, "1");
+		ScanReport.Entry forgeEntry = entry(forge, "2");
+		Map<File, ScanReport.Entry> matched = ScanReport.match(Arrays.asList(fabricEntry, forgeEntry),
+			Arrays.asList(forge, fabric));
+
+		assertSame(fabricEntry, matched.get(fabric));
+		assertSame(forgeEntry, matched.get(forge));
+	}
+
+	@Test
+	void matchesFilesElsewhereByHash() throws IOException {
+		File moved = file("mod.jar", "contents");
+		ScanReport.Entry entry = entry(new File("/elsewhere/mod.jar"), PublishedFiles.sha512(moved));
+
+		Map<File, ScanReport.Entry> matched = ScanReport.match(Collections.singletonList(entry),
+			Arrays.asList(moved, file("other.jar", "other")));
+
+		assertSame(entry, matched.get(moved));
+		assertEquals(1, matched.size());
+	}
+
+	@Test
+	void takesHashesFromReport() throws IOException {
+		File reported = file("reported.jar", "reported");
+		File unreported = file("unreported.jar", "unreported");
+
+		Map<File, String> hashes = ScanReport.sha512(Collections.singletonList(entry(reported, "1")),
+			Arrays.asList(reported, unreported));
+
+		assertEquals("1", hashes.get(reported));
+		assertEquals(PublishedFiles.sha512(unreported), hashes.get(unreported));
+	}
+
+	@Test
+	void reportsIncompleteScanAsError() throws IOException {
+		File bomb = dir.resolve("bomb.jar").toFile();
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(bomb.toPath()))) {
+			zip.putNextEntry(new ZipEntry("a/Bomb.class"));
+			zip.write(new byte[65 << 20]);
+			zip.closeEntry();
+		}
+		IngestResult result = JarInfectionScanner.ingest(QUIET, bomb, new ScanOptions());
+
+		File report = dir.resolve("scan.json").toFile();
+		File sarifReport = dir.resolve("scan.sarif").toFile();
+		try (ScanReport.Writer writer = new ScanReport.Writer(report);
+			SarifReport sarif = new SarifReport(sarifReport, dir.toFile())) {
+			writer.write(result);
+			sarif.write(result);
+		}
+
+		List<ScanReport.Entry> entries = ScanReport.read(report);
+		assertEquals("error", entries.get(0).verdict);
+		try (Reader reader = Files.newBufferedReader(sarifReport.toPath(), StandardCharsets.UTF_8)) {
+			JsonObject sarifResult = new JsonParser().parse(reader).getAsJsonObject()
+				.getAsJsonArray("runs").get(0).getAsJsonObject()
+				.getAsJsonArray("results").get(0).getAsJsonObject();
+			assertEquals("fail", sarifResult.get("kind").getAsString());
+			assertEquals("warning", sarifResult.get("level").getAsString());
+		}
+	}
+
+	private File file(String path, String contents) throws IOException {
+		Path file = dir.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, contents.getBytes());
+		return file.toFile();
+	}
+
+	private static ScanReport.Entry entry(File file, String sha512) {
+		ScanReport.Entry entry = new ScanReport.Entry();
+		entry.file = file.getName();
+		entry.path = file.getAbsolutePath();
+		entry.sha512 = sha512;
+		return entry;
+	}
+}
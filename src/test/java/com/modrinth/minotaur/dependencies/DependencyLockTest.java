@@ -0,0 +1,49 @@
+package com.modrinth.minotaur.dependencies;
+
+import com.modrinth.minotaur.dependencies.DependencyLock.LockedVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyLockTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsWhatWasWritten() throws IOException {
+		DependencyLock lock = new DependencyLock();
+		lock.lockProject("fabric-api", "P7dR8mSH");
+		lock.lockVersion(null, "tFw0iWAk", new LockedVersion("tFw0iWAk", "P7dR8mSH"));
+		lock.lockVersion("P7dR8mSH", "0.92.0+1.20.1", new LockedVersion("BPX6fK06", "P7dR8mSH"));
+		File file = dir.resolve(DependencyLock.FILE_NAME).toFile();
+		lock.write(file);
+
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		assertTrue(json.contains("\"version_numbers\""));
+		assertTrue(json.contains("\"project_id\""));
+
+		DependencyLock read = DependencyLock.read(file);
+		assertFalse(read.isEmpty());
+		assertEquals("P7dR8mSH", read.projectId("fabric-api"));
+		LockedVersion byId = read.version(null, "tFw0iWAk");
+		assertEquals("tFw0iWAk", byId.getId());
+		assertEquals("P7dR8mSH", byId.getProjectId());
+		LockedVersion byNumber = read.version("P7dR8mSH", "0.92.0+1.20.1");
+		assertEquals("BPX6fK06", byNumber.getId());
+		assertEquals("P7dR8mSH", byNumber.getProjectId());
+		assertNull(read.version(null, "0.92.0+1.20.1"));
+		assertNull(read.version("other", "0.92.0+1.20.1"));
+	}
+
+	@Test
+	void missingFileIsEmpty() {
+		assertTrue(DependencyLock.read(dir.resolve(DependencyLock.FILE_NAME).toFile()).isEmpty());
+	}
+}
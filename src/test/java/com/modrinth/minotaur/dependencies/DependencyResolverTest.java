@@ -0,0 +1,40 @@
+package com.modrinth.minotaur.dependencies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyResolverTest {
+	private static final String API = "https://api.modrinth.com/v2";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void invalidatingCacheLeavesLockedProjectsAlone() {
+		LookupCache cache = new LookupCache(dir.toFile(), API, 1);
+		cache.projectId("locked", () -> CompletableFuture.completedFuture("L")).join();
+		cache.projectId("unlocked", () -> CompletableFuture.completedFuture("U")).join();
+		DependencyLock lock = new DependencyLock();
+		lock.lockProject("locked", "L");
+		lock.lockVersion(null, "V", new DependencyLock.LockedVersion("V", "L"));
+
+		// Everything comes from the lock or the cache, so the API is never asked
+		DependencyResolver resolver = new DependencyResolver(null, lock, cache);
+		assertEquals("L", resolver.projectId("locked").join());
+		assertEquals("U", resolver.projectId("unlocked").join());
+		assertEquals("V", resolver.version(null, "V").join().getId());
+		resolver.invalidateCache();
+
+		assertEquals("L", cache.projectId("locked", DependencyResolverTest::fail).join());
+		assertEquals("U2", cache.projectId("unlocked", () -> CompletableFuture.completedFuture("U2")).join());
+	}
+
+	private static CompletableFuture<String> fail() {
+		throw new AssertionError("Looked up a project which should still be cached");
+	}
+}
@@ -0,0 +1,77 @@
+package com.modrinth.minotaur.dependencies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheTest {
+	private static final String API = "https://api.modrinth.com/v2";
+
+	@TempDir
+	Path dir;
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	@Test
+	void reusesProjectId() {
+		LookupCache cache = new LookupCache(dir.toFile(), API, 1);
+
+		assertEquals("P7dR8mSH", cache.projectId("fabric-api", lookup("P7dR8mSH")).join());
+		assertEquals("P7dR8mSH", cache.projectId("fabric-api", lookup("other")).join());
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void looksUpExpiredEntriesAgain() throws IOException {
+		LookupCache cache = new LookupCache(dir.toFile(), API, 1);
+		cache.projectId("fabric-api", lookup("P7dR8mSH")).join();
+
+		FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+		try (Stream<Path> entries = Files.list(dir.resolve("caches/minotaur/lookups"))) {
+			for (Path entry : (Iterable<Path>) entries::iterator) {
+				Files.setLastModifiedTime(entry, expired);
+			}
+		}
+
+		assertEquals("other", cache.projectId("fabric-api", lookup("other")).join());
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void looksUpInvalidatedEntriesAgain() {
+		LookupCache cache = new LookupCache(dir.toFile(), API, 1);
+		cache.projectId("fabric-api", lookup("P7dR8mSH")).join();
+
+		cache.invalidateProject("fabric-api");
+
+		assertEquals("other", cache.projectId("fabric-api", lookup("other")).join());
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void keepsApisApart() {
+		new LookupCache(dir.toFile(), API, 1).projectId("fabric-api", lookup("P7dR8mSH")).join();
+
+		LookupCache staging = new LookupCache(dir.toFile(), "https://staging-api.modrinth.com/v2", 1);
+		assertEquals("other", staging.projectId("fabric-api", lookup("other")).join());
+		assertEquals(2, lookups.get());
+	}
+
+	private Supplier<CompletableFuture<String>> lookup(String id) {
+		return () -> {
+			lookups.incrementAndGet();
+			return CompletableFuture.completedFuture(id);
+		};
+	}
+}
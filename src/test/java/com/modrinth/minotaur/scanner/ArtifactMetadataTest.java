@@ -0,0 +1,42 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactMetadataTest {
+	private static final String MODS_TOML = "modLoader=\"javafml\"\n[[mods]]\nmodId=\"example\"\nversion=\"1.2.3\"\n";
+
+	@Test
+	void modsTomlNamesNoLoader() {
+		ArtifactMetadata metadata = new ArtifactMetadata();
+		metadata.read("META-INF/mods.toml", MODS_TOML.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(Collections.emptyList(), metadata.getLoaders());
+		assertEquals("example", metadata.getId());
+		assertEquals("1.2.3", metadata.getVersion());
+	}
+
+	@Test
+	void neoForgeModsTomlNamesNeoForge() {
+		ArtifactMetadata metadata = new ArtifactMetadata();
+		metadata.read("META-INF/neoforge.mods.toml", MODS_TOML.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(Collections.singletonList("neoforge"), metadata.getLoaders());
+	}
+
+	@Test
+	void keepsLoadersOfEveryDescriptor() {
+		ArtifactMetadata metadata = new ArtifactMetadata();
+		metadata.read("fabric.mod.json", "{\"id\": \"example\", \"version\": \"${version}\"}".getBytes(StandardCharsets.UTF_8));
+		metadata.read("quilt.mod.json", "{\"quilt_loader\": {\"id\": \"other\"}}".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(Arrays.asList("fabric", "quilt"), metadata.getLoaders());
+		assertEquals("example", metadata.getId());
+		assertNull(metadata.getVersion());
+	}
+}
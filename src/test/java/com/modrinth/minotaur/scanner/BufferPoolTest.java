@@ -0,0 +1,45 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+	@Test
+	void readsMoreThanExpected() throws IOException {
+		byte[] bytes = new byte[100_000];
+		bytes[bytes.length - 1] = 42;
+
+		BufferPool.Buffer buffer = new BufferPool(1).read(new ByteArrayInputStream(bytes), 10);
+		assertEquals(bytes.length, buffer.length);
+		assertEquals(42, buffer.bytes[buffer.length - 1]);
+	}
+
+	@Test
+	void forgedSizeIsOnlyAHint() throws IOException {
+		BufferPool.Buffer buffer = new BufferPool(1).read(new ByteArrayInputStream(new byte[10]), 0x7FFFFFF0L);
+		assertEquals(10, buffer.length);
+		assertTrue(buffer.bytes.length <= 1 << 20);
+	}
+
+	@Test
+	void rejectsEntriesInflatingTooFar() {
+		InputStream endless = new InputStream() {
+			@Override
+			public int read() {
+				return 0;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				return len;
+			}
+		};
+
+		assertThrows(IOException.class, () -> new BufferPool(1).read(endless, -1));
+	}
+}
@@ -0,0 +1,89 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassVerdictCacheTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void remembersCleanClassesOnceSaved() throws IOException {
+		byte[] clean = TestClasses.clean("a/Clean");
+		long[] hash = KnownCleanClasses.hash(clean, clean.length);
+
+		ClassVerdictCache cache = new ClassVerdictCache(dir, "test");
+		cache.markClean(hash);
+		// Only written once the task is done
+		assertFalse(new ClassVerdictCache(dir, "test").isKnownClean(hash));
+		cache.save();
+
+		ClassVerdictCache reloaded = new ClassVerdictCache(dir, "test");
+		assertTrue(reloaded.isKnownClean(hash));
+		assertFalse(new ClassVerdictCache(dir, "other").isKnownClean(hash));
+	}
+
+	@Test
+	void keysOnContents() throws IOException {
+		byte[] clean = TestClasses.clean("a/Clean");
+		byte[] changed = clean.clone();
+		changed[changed.length - 1] ^= 1;
+
+		ClassVerdictCache cache = new ClassVerdictCache(dir, "test");
+		cache.markClean(KnownCleanClasses.hash(clean, clean.length));
+		cache.save();
+
+		assertFalse(new ClassVerdictCache(dir, "test").isKnownClean(KnownCleanClasses.hash(changed, changed.length)));
+	}
+
+	@Test
+	void skipsClassesFoundCleanByEarlierScans() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		// Starts like the IP, so the prefilter lets it through
+		entries.put("a/Almost.class", TestClasses.bytes("a/Almost", 56, 53, 46, 50));
+		File file = Files.write(dir.resolve("almost.jar"), TestClasses.jar(entries)).toFile();
+
+		ScanCache cache = new ScanCache(dir.toFile(), 10);
+		IngestResult first = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions().cache(cache));
+		assertEquals(1, first.getStatistics().getClassesParsed());
+		cache.saveClasses();
+
+		// Another jar with the same class, as the verdict of the same jar would be reused as a whole
+		entries.put("README.txt", "other".getBytes(StandardCharsets.UTF_8));
+		File other = Files.write(dir.resolve("other.jar"), TestClasses.jar(entries)).toFile();
+		IngestResult second = JarInfectionScanner.ingest(TestClasses.QUIET, other,
+			new ScanOptions().cache(new ScanCache(dir.toFile(), 10)));
+		assertFalse(second.isInfected());
+		assertEquals(0, second.getStatistics().getClassesParsed());
+		assertEquals(1, second.getStatistics().getClassCacheHits());
+	}
+
+	@Test
+	void mergesWithConcurrentWriters() throws IOException {
+		long[][] hashes = new long[100][];
+		ClassVerdictCache first = new ClassVerdictCache(dir, "test");
+		ClassVerdictCache second = new ClassVerdictCache(dir, "test");
+		for (int i = 0; i < hashes.length; i++) {
+			byte[] clazz = TestClasses.clean("a/C" + i);
+			hashes[i] = KnownCleanClasses.hash(clazz, clazz.length);
+			(i % 2 == 0 ? first : second).markClean(hashes[i]);
+		}
+		first.save();
+		second.save();
+
+		ClassVerdictCache reloaded = new ClassVerdictCache(dir, "test");
+		for (long[] hash : hashes) {
+			assertTrue(reloaded.isKnownClean(hash));
+		}
+	}
+}
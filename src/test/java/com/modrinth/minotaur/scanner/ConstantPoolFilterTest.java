@@ -0,0 +1,108 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+class ConstantPoolFilterTest {
+	// Calls Owner.evil() and then pushes and pops 42, which compiles to the known code 10 2a 57
+	private static final ConstantPoolFilter FILTER = new ConstantPoolFilter(Collections.singletonList(
+		new Signature("test", Signature.Mode.CONTIGUOUS, new Signature.Insn[] {
+			new Signature.Insn(INVOKESTATIC, "Owner", "evil", "()V", null, null),
+			new Signature.Insn(BIPUSH, null, null, null, 42, null),
+			new Signature.Insn(POP, null, null, null, null, null)
+		})), Collections.emptyList());
+	private static final byte[] KNOWN_CODE = {BIPUSH, 42, POP};
+
+	@Test
+	void letsMatchingClassThrough() {
+		assertMayMatch(true, TestClasses.code("a/Evil", mv -> evil(mv, 42)));
+	}
+
+	@Test
+	void rejectsClassWithoutConstants() {
+		assertMayMatch(false, TestClasses.clean("a/Clean"));
+	}
+
+	@Test
+	void rejectsClassWithoutKnownCode() {
+		assertMayMatch(false, TestClasses.code("a/Other", mv -> evil(mv, 43)));
+	}
+
+	@Test
+	void letsTruncatedConstantPoolThrough() {
+		byte[] clazz = TestClasses.clean("a/Clean");
+
+		assertTrue(FILTER.mayMatch(clazz, 20));
+	}
+
+	@Test
+	void skipsSecondSlotOfLongAndDouble() {
+		// Constants after the wide ones are only found if each of them counts as two entries
+		assertMayMatch(true, TestClasses.code("a/Wide", mv -> {
+			wide(mv);
+			evil(mv, 42);
+		}));
+		assertMayMatch(false, TestClasses.code("a/WideClean", ConstantPoolFilterTest::wide));
+	}
+
+	@Test
+	void letsUnknownTagThrough() {
+		byte[] clazz = TestClasses.clean("a/Clean");
+		// The tag of the first constant, right after the magic, version and constant pool count
+		clazz[10] = 2;
+
+		assertMayMatch(true, clazz);
+	}
+
+	@Test
+	void looksForKnownCodeAfterConstantPoolOnly() {
+		// The known code sits in an attribute of the class rather than in a method, which the filter cannot tell
+		// apart, so it leaves the class to the full parse
+		ClassWriter cw = TestClasses.begin("a/Attribute");
+		cw.visitAttribute(new Attribute("Extra") {
+			@Override
+			protected ByteVector write(ClassWriter classWriter, byte[] code, int codeLength, int maxStack,
+				int maxLocals) {
+				return new ByteVector().putByteArray(KNOWN_CODE, 0, KNOWN_CODE.length);
+			}
+		});
+		MethodVisitor mv = TestClasses.method(cw);
+		evil(mv, 43);
+		assertMayMatch(true, TestClasses.end(cw, mv));
+
+		// While the same bytes in the constant pool do not count
+		assertMayMatch(false, TestClasses.code("a/Constant", code -> {
+			code.visitLdcInsn(new String(new char[] {BIPUSH, 42, POP}));
+			code.visitInsn(POP);
+			evil(code, 43);
+		}));
+	}
+
+	private static void evil(MethodVisitor mv, int value) {
+		mv.visitMethodInsn(INVOKESTATIC, "Owner", "evil", "()V", false);
+		mv.visitIntInsn(BIPUSH, value);
+		mv.visitInsn(POP);
+	}
+
+	private static void wide(MethodVisitor mv) {
+		mv.visitLdcInsn(1234567890123L);
+		mv.visitInsn(POP2);
+		mv.visitLdcInsn(1.5e300);
+		mv.visitInsn(POP2);
+	}
+
+	private static void assertMayMatch(boolean expected, byte[] clazz) {
+		// Whatever follows the class in a pooled buffer must not change the outcome
+		byte[] buffer = Arrays.copyOf(clazz, clazz.length + 16);
+		assertEquals(expected, FILTER.mayMatch(buffer, clazz.length));
+	}
+}
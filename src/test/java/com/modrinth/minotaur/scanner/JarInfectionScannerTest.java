@@ -0,0 +1,178 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JarInfectionScannerTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void findsInfectedClass() throws IOException {
+		File file = write("infected.jar", TestClasses.jar(entries("b/Infected", TestClasses.sig3("b/Infected"))));
+
+		assertTrue(JarInfectionScanner.scan(TestClasses.QUIET, file, new ScanOptions()));
+		IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions());
+		assertTrue(result.isScanned());
+		assertTrue(result.isInfected());
+		assertEquals("b/Infected.class", result.getMatch().getEntry());
+	}
+
+	@Test
+	void findsClassHiddenFromStreaming() throws IOException, NoSuchAlgorithmException {
+		byte[] jar = hideAfterFirstEntry(TestClasses.jar(entries("b/Hidden", TestClasses.sig3("b/Hidden"))));
+		// Reading the local headers in order stops before the infected class
+		try (ZipInputStream stream = new ZipInputStream(new ByteArrayInputStream(jar))) {
+			assertEquals("a/Clean.class", stream.getNextEntry().getName());
+			assertNull(stream.getNextEntry());
+		}
+		File file = write("hidden.jar", jar);
+
+		assertTrue(JarInfectionScanner.scan(TestClasses.QUIET, file, new ScanOptions()));
+		IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions());
+		assertTrue(result.isInfected());
+		assertEquals("b/Hidden.class", result.getMatch().getEntry());
+		assertEquals(sha512(Files.readAllBytes(file.toPath())), result.getSha512());
+	}
+
+	@Test
+	void findsClassHiddenInNestedJar() throws IOException {
+		byte[] nested = hideAfterFirstEntry(TestClasses.jar(entries("b/Hidden", TestClasses.sig3("b/Hidden"))));
+		Map<String, byte[]> outer = new LinkedHashMap<>();
+		outer.put("a/Outer.class", TestClasses.clean("a/Outer"));
+		outer.put("META-INF/jars/lib.jar", nested);
+		File file = write("outer.jar", TestClasses.jar(outer));
+
+		IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions());
+		assertTrue(result.isInfected());
+		assertEquals("META-INF/jars/lib.jar!/b/Hidden.class", result.getMatch().getEntry());
+	}
+
+	@Test
+	void findsClassNextToBomb() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("a/Bomb.class", new byte[BufferPool.MAX_ENTRY_SIZE + (1 << 20)]);
+		entries.put("b/Infected.class", TestClasses.sig3("b/Infected"));
+		File file = write("bomb.jar", TestClasses.jar(entries));
+
+		for (int parallelism : new int[] {1, 4}) {
+			IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions().parallelism(parallelism));
+			assertTrue(result.isInfected());
+			assertEquals("b/Infected.class", result.getMatch().getEntry());
+		}
+	}
+
+	@Test
+	void bombLeavesFileWithoutVerdict() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("a/Bomb.class", new byte[BufferPool.MAX_ENTRY_SIZE + (1 << 20)]);
+		entries.put("b/Other.class", TestClasses.clean("b/Other"));
+		File file = write("bomb.jar", TestClasses.jar(entries));
+
+		IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions());
+		assertTrue(result.isScanned());
+		assertFalse(result.isConclusive());
+		assertFalse(result.isInfected());
+	}
+
+	@Test
+	void cleanJarIsClean() throws IOException {
+		File file = write("clean.jar", TestClasses.jar(entries("b/Other", TestClasses.clean("b/Other"))));
+
+		IngestResult result = JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions());
+		assertTrue(result.isScanned());
+		assertFalse(result.isInfected());
+		assertNull(result.getMatch());
+	}
+
+	@Test
+	void reusesCachedVerdict() throws IOException {
+		File file = write("infected.jar", TestClasses.jar(entries("b/Infected", TestClasses.sig3("b/Infected"))));
+		ScanOptions options = new ScanOptions().cache(new ScanCache(dir.resolve("home").toFile(), 10));
+
+		IngestResult first = JarInfectionScanner.ingest(TestClasses.QUIET, file, options);
+		assertTrue(first.isInfected());
+		assertEquals(2, first.getStatistics().getEntries());
+
+		IngestResult second = JarInfectionScanner.ingest(TestClasses.QUIET, file, options);
+		assertTrue(second.isInfected());
+		assertEquals(0, second.getStatistics().getEntries());
+		assertEquals(first.getSha512(), second.getSha512());
+	}
+
+	@Test
+	void notAZipIsNotScanned() throws IOException {
+		File file = write("garbage.jar", new byte[] {1, 2, 3, 4});
+
+		assertFalse(JarInfectionScanner.ingest(TestClasses.QUIET, file, new ScanOptions()).isScanned());
+	}
+
+	/**
+	 * @return a clean class followed by the given one
+	 */
+	private static Map<String, byte[]> entries(String name, byte[] clazz) {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("a/Clean.class", TestClasses.clean("a/Clean"));
+		entries.put(name + ".class", clazz);
+		return entries;
+	}
+
+	/**
+	 * Puts the signature of a central directory header in front of the second entry's local header, and corrects the
+	 * offsets pointing past it. A reader following the local headers takes it for the end of the entries, while the
+	 * central directory still lists the second entry.
+	 */
+	private static byte[] hideAfterFirstEntry(byte[] jar) {
+		ByteBuffer zip = ByteBuffer.wrap(jar).order(ByteOrder.LITTLE_ENDIAN);
+		// Written without a comment, so the end record is the last thing in the file
+		int end = jar.length - 22;
+		int count = zip.getShort(end + 10);
+		int central = zip.getInt(end + 16);
+
+		int hidden = -1;
+		int position = central;
+		for (int i = 0; i < count; i++) {
+			int offset = zip.getInt(position + 42);
+			if (offset > 0) {
+				if (hidden < 0) {
+					hidden = offset;
+				}
+				zip.putInt(position + 42, offset + 4);
+			}
+			position += 46 + zip.getShort(position + 28) + zip.getShort(position + 30) + zip.getShort(position + 32);
+		}
+		zip.putInt(end + 16, central + 4);
+
+		byte[] result = new byte[jar.length + 4];
+		System.arraycopy(jar, 0, result, 0, hidden);
+		result[hidden] = 'P';
+		result[hidden + 1] = 'K';
+		result[hidden + 2] = 1;
+		result[hidden + 3] = 2;
+		System.arraycopy(jar, hidden, result, hidden + 4, jar.length - hidden);
+		return result;
+	}
+
+	private File write(String name, byte[] bytes) throws IOException {
+		return Files.write(dir.resolve(name), bytes).toFile();
+	}
+
+	private static String sha512(byte[] bytes) throws NoSuchAlgorithmException {
+		return ScanCache.hex(MessageDigest.getInstance("SHA-512").digest(bytes));
+	}
+}
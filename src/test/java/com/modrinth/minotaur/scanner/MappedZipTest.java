@@ -0,0 +1,31 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedZipTest {
+	@Test
+	void readsEntries() throws IOException {
+		byte[] jar = TestClasses.jar(Collections.singletonMap("a/Clean.class", TestClasses.clean("a/Clean")));
+
+		MappedZip zip = MappedZip.wrap("clean.jar", ByteBuffer.wrap(jar));
+		assertEquals("a/Clean.class", zip.stream().findFirst().get().getName());
+	}
+
+	@Test
+	void rejectsNameBeyondCentralDirectory() throws IOException {
+		byte[] jar = TestClasses.jar(Collections.singletonMap("a/Clean.class", TestClasses.clean("a/Clean")));
+		ByteBuffer zip = ByteBuffer.wrap(jar).order(ByteOrder.LITTLE_ENDIAN);
+		// Written without a comment, so the end record is the last thing in the file
+		int central = zip.getInt(jar.length - 22 + 16);
+		zip.putShort(central + 28, (short) 0xFFFF);
+
+		assertThrows(MappedZip.UnsupportedZipException.class, () -> MappedZip.wrap("bad.jar", zip));
+	}
+}
@@ -0,0 +1,67 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedScanResultsTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void reusesResultsOfCopies() throws IOException {
+		File original = jar("original.jar");
+		File copy = Files.copy(original.toPath(), dir.resolve("copy.jar")).toFile();
+		SharedScanResults results = new SharedScanResults(16);
+
+		results.ingest(TestClasses.QUIET, original, new ScanOptions());
+		IngestResult reused = results.ingest(TestClasses.QUIET, copy, new ScanOptions());
+
+		assertEquals(copy, reused.getFile());
+		assertTrue(reused.isInfected());
+		assertEquals(1, results.getMisses());
+		assertEquals(1, results.getHits());
+	}
+
+	@Test
+	void scansFileOnceWhenScannedConcurrently() throws Exception {
+		File file = jar("shared.jar");
+		SharedScanResults results = new SharedScanResults(16);
+		int threads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<IngestResult>> scans = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				scans.add(pool.submit(() -> {
+					start.await();
+					return results.ingest(TestClasses.QUIET, file, new ScanOptions());
+				}));
+			}
+			start.countDown();
+			for (Future<IngestResult> scan : scans) {
+				assertTrue(scan.get(30, TimeUnit.SECONDS).isInfected());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(1, results.getMisses());
+		assertEquals(threads - 1, results.getHits());
+	}
+
+	private File jar(String name) throws IOException {
+		byte[] jar = TestClasses.jar(Collections.singletonMap("a/Infected.class", TestClasses.sig3("a/Infected")));
+		return Files.write(dir.resolve(name), jar).toFile();
+	}
+}
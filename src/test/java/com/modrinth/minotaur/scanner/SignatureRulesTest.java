@@ -0,0 +1,67 @@
+package com.modrinth.minotaur.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureRulesTest {
+	private static final String RULES = "{\"signatures\": [{\"name\": \"calc\", \"mode\": \"contiguous\", \"instructions\": "
+		+ "[{\"opcode\": \"LDC\", \"constant\": \"calc.exe\"}]}], \"constants\": [\"malware.example.com\"]}";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsCompiledIndex() throws IOException {
+		File rules = rules();
+		Path indexes = dir.resolve("indexes");
+		SignatureRules.load(rules, "hash", indexes);
+		// The index is used from now on, even with the rules file gone
+		Files.delete(rules.toPath());
+
+		assertLoaded(SignatureRules.load(rules, "hash", indexes));
+	}
+
+	@Test
+	void rebuildsIndexWithUnknownMode() throws IOException {
+		File rules = rules();
+		Path indexes = dir.resolve("indexes");
+		SignatureRules.load(rules, "hash", indexes);
+
+		Path index;
+		try (Stream<Path> files = Files.list(indexes)) {
+			index = files.filter(file -> file.toString().endsWith(".idx")).findFirst().orElseThrow(AssertionError::new);
+		}
+		byte[] bytes = Files.readAllBytes(index);
+		// After the magic number, the number of signatures and the name comes the mode
+		int mode = 4 + 4 + 2 + "calc".length();
+		assertEquals(Signature.Mode.CONTIGUOUS.ordinal(), bytes[mode]);
+		bytes[mode] = (byte) 200;
+		Files.write(index, bytes);
+
+		assertLoaded(SignatureRules.load(rules, "hash", indexes));
+		assertEquals(Signature.Mode.CONTIGUOUS.ordinal(), Files.readAllBytes(index)[mode]);
+	}
+
+	private File rules() throws IOException {
+		return Files.write(dir.resolve("rules.json"), RULES.getBytes(StandardCharsets.UTF_8)).toFile();
+	}
+
+	private static void assertLoaded(SignatureRules rules) {
+		assertEquals(1, rules.signatures.size());
+		Signature signature = rules.signatures.get(0);
+		assertEquals("calc", signature.name);
+		assertEquals(Signature.Mode.CONTIGUOUS, signature.mode);
+		assertEquals("calc.exe", signature.insns[0].constant);
+		assertEquals(Collections.singletonList("malware.example.com"), rules.constants);
+	}
+}
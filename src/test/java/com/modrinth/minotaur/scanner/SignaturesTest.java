@@ -0,0 +1,173 @@
+package com.modrinth.minotaur.scanner;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+class SignaturesTest {
+	private static final int[] IP = {56, 53, 46, 50, 49, 55, 46, 49, 52, 52, 46, 49, 51, 48};
+
+	@Test
+	void sig1Matches() {
+		byte[] clazz = TestClasses.code("Sig1", mv -> {
+			for (AbstractInsnNode insn : JarInfectionScanner.SIG1) {
+				// Instructions with other opcodes may sit in between
+				mv.visitInsn(NOP);
+				mv.visitLdcInsn("noise");
+				insn.accept(mv);
+			}
+		});
+
+		assertTrue(passesPrefilter(clazz));
+		assertEquals("SIG1", match(clazz));
+	}
+
+	@Test
+	void sig1HasToStartTheMethod() {
+		List<AbstractInsnNode> insns = new ArrayList<>();
+		insns.add(new TypeInsnNode(NEW, "java/lang/Object"));
+		insns.addAll(Arrays.asList(JarInfectionScanner.SIG1));
+
+		byte[] clazz = TestClasses.code("Sig1Late", mv -> insns.forEach(insn -> insn.accept(mv)));
+		assertTrue(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig1OutOfOrder() {
+		List<AbstractInsnNode> insns = new ArrayList<>(Arrays.asList(JarInfectionScanner.SIG1));
+		Collections.swap(insns, insns.size() - 1, insns.size() - 2);
+
+		byte[] clazz = TestClasses.code("Sig1Swapped", mv -> insns.forEach(insn -> insn.accept(mv)));
+		assertTrue(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig1WithoutLastCallIsRejectedByPrefilter() {
+		AbstractInsnNode[] insns = Arrays.copyOf(JarInfectionScanner.SIG1, JarInfectionScanner.SIG1.length - 1);
+
+		byte[] clazz = TestClasses.code("Sig1Partial", mv -> Arrays.stream(insns).forEach(insn -> insn.accept(mv)));
+		assertFalse(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig2MatchesAnywhere() {
+		byte[] clazz = TestClasses.code("Sig2", mv -> {
+			// A partial match first, which must not get in the way of the full one after it
+			for (int i = 0; i < 4; i++) {
+				JarInfectionScanner.SIG2[i].accept(mv);
+			}
+			mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+			for (AbstractInsnNode insn : JarInfectionScanner.SIG2) {
+				mv.visitInsn(ICONST_0);
+				insn.accept(mv);
+			}
+		});
+
+		assertTrue(passesPrefilter(clazz));
+		assertEquals("SIG2", match(clazz));
+	}
+
+	@Test
+	void sig2OutOfOrder() {
+		List<AbstractInsnNode> insns = new ArrayList<>(Arrays.asList(JarInfectionScanner.SIG2));
+		Collections.swap(insns, 0, insns.size() - 1);
+
+		byte[] clazz = TestClasses.code("Sig2Swapped", mv -> insns.forEach(insn -> insn.accept(mv)));
+		assertTrue(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig2WithoutConcatIsRejectedByPrefilter() {
+		byte[] clazz = TestClasses.code("Sig2Partial", mv -> {
+			for (AbstractInsnNode insn : JarInfectionScanner.SIG2) {
+				if (!"concat".equals(((MethodInsnNode) insn).name)) {
+					insn.accept(mv);
+				}
+			}
+		});
+
+		assertFalse(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig3Matches() {
+		byte[] clazz = TestClasses.sig3("Sig3");
+
+		assertTrue(passesPrefilter(clazz));
+		assertEquals("SIG3", match(clazz));
+	}
+
+	@Test
+	void sig3WithAnotherIp() {
+		int[] ip = IP.clone();
+		ip[ip.length - 1] = 49;
+		byte[] clazz = TestClasses.bytes("Sig3OtherIp", ip);
+
+		assertTrue(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void sig3Interrupted() {
+		byte[] clazz = TestClasses.code("Sig3Interrupted", mv -> {
+			TestClasses.byteArray(mv, Arrays.copyOf(IP, 7));
+			// The rest of the array is filled after something else happened
+			mv.visitInsn(NOP);
+			for (int i = 7; i < IP.length; i++) {
+				mv.visitInsn(DUP);
+				mv.visitIntInsn(BIPUSH, i);
+				mv.visitIntInsn(BIPUSH, IP[i]);
+				mv.visitInsn(BASTORE);
+			}
+			mv.visitInsn(POP);
+		});
+
+		assertTrue(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void otherByteArrayIsRejectedByPrefilter() {
+		byte[] clazz = TestClasses.bytes("Bytes", 1, 2, 3, 4, 5, 6, 7, 8);
+
+		assertFalse(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	@Test
+	void cleanClassIsRejectedByPrefilter() {
+		byte[] clazz = TestClasses.clean("Clean");
+
+		assertFalse(passesPrefilter(clazz));
+		assertNull(match(clazz));
+	}
+
+	private static boolean passesPrefilter(byte[] clazz) {
+		return Signatures.builtIn().filter.mayMatch(clazz, clazz.length);
+	}
+
+	@Nullable
+	private static String match(byte[] clazz) {
+		InfectionClassVisitor visitor = new InfectionClassVisitor(Signatures.builtIn());
+		new ClassReader(clazz).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		ScanMatch match = visitor.getMatch("Test.class");
+		return match == null ? null : match.getSignature();
+	}
+}
@@ -0,0 +1,141 @@
+package com.modrinth.minotaur.scanner;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates the classes and jars the scanner tests look at.
+ */
+final class TestClasses {
+	/**
+	 * Drops everything the scanner logs.
+	 */
+	static final ScanLogger QUIET = new ScanLogger() {
+		@Override
+		public void debug(String message, Object... args) {
+		}
+
+		@Override
+		public void info(String message, Object... args) {
+		}
+
+		@Override
+		public void warn(String message, Object... args) {
+		}
+
+		@Override
+		public void error(String message, Object... args) {
+		}
+	};
+
+	private static final int[] IP = {56, 53, 46, 50, 49, 55, 46, 49, 52, 52, 46, 49, 51, 48};
+
+	private TestClasses() {
+	}
+
+	/**
+	 * @return a class which does nothing suspicious
+	 */
+	static byte[] clean(String name) {
+		ClassWriter cw = begin(name);
+		MethodVisitor mv = method(cw);
+		mv.visitLdcInsn("hello " + name);
+		mv.visitInsn(POP);
+		return end(cw, mv);
+	}
+
+	/**
+	 * @return a class filling a byte array with the IP the malware connects to, as javac compiles it
+	 */
+	static byte[] sig3(String name) {
+		ClassWriter cw = begin(name);
+		MethodVisitor mv = method(cw);
+		byteArray(mv, IP);
+		mv.visitInsn(POP);
+		return end(cw, mv);
+	}
+
+	/**
+	 * @return a class filling a byte array with the given values, which gets past the prefilter if it starts like the IP
+	 */
+	static byte[] bytes(String name, int... values) {
+		ClassWriter cw = begin(name);
+		MethodVisitor mv = method(cw);
+		byteArray(mv, values);
+		mv.visitInsn(POP);
+		return end(cw, mv);
+	}
+
+	/**
+	 * @return a class with a single method made of the given code, which does not have to be valid
+	 */
+	static byte[] code(String name, Consumer<MethodVisitor> code) {
+		ClassWriter cw = begin(name);
+		MethodVisitor mv = method(cw);
+		code.accept(mv);
+		return end(cw, mv);
+	}
+
+	/**
+	 * Pushes a byte array initialized the way javac compiles an array literal.
+	 */
+	static void byteArray(MethodVisitor mv, int[] values) {
+		mv.visitIntInsn(BIPUSH, values.length);
+		mv.visitIntInsn(NEWARRAY, T_BYTE);
+		for (int i = 0; i < values.length; i++) {
+			mv.visitInsn(DUP);
+			if (i <= 5) {
+				mv.visitInsn(ICONST_0 + i);
+			} else {
+				mv.visitIntInsn(BIPUSH, i);
+			}
+			mv.visitIntInsn(BIPUSH, values[i]);
+			mv.visitInsn(BASTORE);
+		}
+	}
+
+	static ClassWriter begin(String name) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", null);
+		return cw;
+	}
+
+	static MethodVisitor method(ClassWriter cw) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "run", "()V", null, null);
+		mv.visitCode();
+		return mv;
+	}
+
+	static byte[] end(ClassWriter cw, MethodVisitor mv) {
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * @param entries the contents of the jar, by entry name, in order
+	 * @return the jar
+	 */
+	static byte[] jar(Map<String, byte[]> entries) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zip.putNextEntry(new ZipEntry(entry.getKey()));
+				zip.write(entry.getValue());
+				zip.closeEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+}